@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.uml2.uml.Class;
+import org.eclipse.uml2.uml.Model;
+import org.eclipse.uml2.uml.PrimitiveType;
+import org.eclipse.uml2.uml.Property;
+import org.eclipse.uml2.uml.UMLFactory;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+/**
+ * Inputs shared by the benchmarks: synthetic enumeration classes of a given
+ * size and the test model of the cartridge.
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class BenchmarkModels {
+
+	private static final String TEST_MODEL = "model/emf/test-uml.uml";
+
+	/**
+	 * The transformer logs a summary of every run, which would clutter the
+	 * benchmark output, the generator itself only logs at FINE. Loggers are
+	 * only weakly referenced, so keep them.
+	 */
+	private static final Logger[] quietLoggers = {
+			Logger.getLogger("org.andromda"),
+			Logger.getLogger("de.crowdcode") };
+
+	static {
+		for (Logger logger : quietLoggers) {
+			logger.setLevel(Level.WARNING);
+		}
+	}
+
+	private BenchmarkModels() {
+	}
+
+	/**
+	 * Create the Guice injector the benchmarked classes are taken from.
+	 *
+	 * @return the injector
+	 */
+	public static Injector createInjector() {
+		return Guice.createInjector();
+	}
+
+	/**
+	 * Create an enumeration class in the package
+	 * <code>Benchmark::org::andromda</code> with the given number of
+	 * documented String attributes.
+	 *
+	 * @param attributes
+	 *            the number of attributes, at least 1
+	 * @return the UML class
+	 */
+	public static Class createEnumerationClass(int attributes) {
+		Model model = UMLFactory.eINSTANCE.createModel();
+		model.setName("Benchmark");
+		PrimitiveType stringType = model.createOwnedPrimitiveType("String");
+		Class clazz = model.createNestedPackage("org")
+				.createNestedPackage("andromda")
+				.createOwnedClass("BenchmarkEnum", false);
+		for (int i = 0; i < attributes; i++) {
+			Property attribute = clazz.createOwnedAttribute("theAttribute"
+					+ i, stringType);
+			attribute.createOwnedComment().setBody(
+					"The documentation of attribute " + i);
+		}
+		return clazz;
+	}
+
+	/**
+	 * Create a name of the given length out of camel case words, separators
+	 * and accented characters.
+	 *
+	 * @param length
+	 *            the length of the name
+	 * @return the name
+	 */
+	public static String createName(int length) {
+		String words = "someName withÁccent_and-Separators ANDCapitals ";
+		StringBuilder name = new StringBuilder(length);
+		while (name.length() < length) {
+			name.append(words);
+		}
+		name.setLength(length);
+		return name.toString();
+	}
+
+	/**
+	 * Create a plain text of the given length with several paragraphs.
+	 *
+	 * @param length
+	 *            the length of the text
+	 * @return the text
+	 */
+	public static String createText(int length) {
+		String sentence = "The documentation of a model element is wrapped "
+				+ "into paragraphs by the cartridge. ";
+		StringBuilder text = new StringBuilder(length);
+		for (int i = 1; text.length() < length; i++) {
+			text.append(sentence);
+			if (i % 5 == 0) {
+				text.append('\n');
+			}
+		}
+		text.setLength(length);
+		return text.toString();
+	}
+
+	/**
+	 * The test model of the cartridge with its profiles. When running from
+	 * the benchmark jar, the files are extracted into the given directory.
+	 *
+	 * @param directory
+	 *            the directory to extract the model into
+	 * @return the test model file
+	 * @throws IOException
+	 *             if the model cannot be extracted
+	 */
+	public static File getTestModel(File directory) throws IOException {
+		URL url = BenchmarkModels.class.getResource("/" + TEST_MODEL);
+		if (url == null) {
+			throw new IOException("Test model not on the classpath: "
+					+ TEST_MODEL);
+		}
+		if ("file".equals(url.getProtocol())) {
+			try {
+				return new File(url.toURI());
+			} catch (URISyntaxException e) {
+				throw new IOException(e);
+			}
+		}
+
+		String prefix = TEST_MODEL.substring(0, TEST_MODEL.lastIndexOf('/') + 1);
+		JarFile jarFile = ((JarURLConnection) url.openConnection())
+				.getJarFile();
+		for (Enumeration<JarEntry> entries = jarFile.entries(); entries
+				.hasMoreElements();) {
+			JarEntry entry = entries.nextElement();
+			if (entry.getName().startsWith(prefix) && !entry.isDirectory()) {
+				copy(jarFile.getInputStream(entry), new File(directory, entry
+						.getName().substring(prefix.length())));
+			}
+		}
+		return new File(directory, TEST_MODEL.substring(prefix.length()));
+	}
+
+	/**
+	 * Create a temporary directory. The benchmark has to {@link #delete(File)}
+	 * it when the trial is over.
+	 *
+	 * @param prefix
+	 *            the prefix of the directory name
+	 * @return the directory
+	 * @throws IOException
+	 *             if the directory cannot be created
+	 */
+	public static File createTempDirectory(String prefix) throws IOException {
+		File directory = File.createTempFile(prefix, "");
+		if (!directory.delete() || !directory.mkdir()) {
+			throw new IOException("Cannot create directory " + directory);
+		}
+		return directory;
+	}
+
+	/**
+	 * Delete a file or a directory with all its contents.
+	 *
+	 * @param file
+	 *            the file or directory
+	 * @throws IOException
+	 *             if anything cannot be deleted
+	 */
+	public static void delete(File file) throws IOException {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		if (file.exists() && !file.delete()) {
+			throw new IOException("Cannot delete " + file);
+		}
+	}
+
+	private static void copy(InputStream in, File file) throws IOException {
+		try {
+			OutputStream out = new FileOutputStream(file);
+			try {
+				byte[] buffer = new byte[8192];
+				for (int read = in.read(buffer); read >= 0; read = in
+						.read(buffer)) {
+					out.write(buffer, 0, read);
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.andromda.cartridges.java.EnumClassGenerator;
+import org.eclipse.uml2.uml.Classifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link EnumClassGenerator#generateEnumClass(Classifier)} for
+ * enumeration classes with several numbers of literals.
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnumClassGeneratorBenchmark {
+
+	@Param({ "2", "32", "512" })
+	private int attributes;
+
+	private EnumClassGenerator enumClassGenerator;
+
+	private Classifier clazz;
+
+	@Setup
+	public void setUp() {
+		enumClassGenerator = BenchmarkModels.createInjector().getInstance(
+				EnumClassGenerator.class);
+		clazz = BenchmarkModels.createEnumerationClass(attributes);
+	}
+
+	@Benchmark
+	public String generateEnumClass() {
+		return enumClassGenerator.generateEnumClass(clazz);
+	}
+}
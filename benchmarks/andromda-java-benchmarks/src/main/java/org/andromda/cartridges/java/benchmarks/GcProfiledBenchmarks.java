@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, which adds the allocation rate
+ * and the bytes allocated per operation to the results. Accepts the same
+ * arguments as the JMH main class, e.g. a regular expression selecting the
+ * benchmarks:
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar org.andromda.cartridges.java.benchmarks.GcProfiledBenchmarks NameMasker
+ * </pre>
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class GcProfiledBenchmarks {
+
+	private GcProfiledBenchmarks() {
+	}
+
+	public static void main(String[] args) throws CommandLineOptionException,
+			RunnerException {
+		CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+		new Runner(new OptionsBuilder().parent(commandLineOptions)
+				.addProfiler(GCProfiler.class).build()).run();
+	}
+}
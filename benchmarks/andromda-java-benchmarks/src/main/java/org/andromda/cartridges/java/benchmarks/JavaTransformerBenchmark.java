@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.andromda.cartridges.java.JavaTransformer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.crowdcode.kissmda.core.Context;
+import de.crowdcode.kissmda.core.StandardContext;
+
+/**
+ * Benchmarks a full {@link JavaTransformer#transform(Context)} of the test
+ * model of the cartridge, including loading the model and its profiles.
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JavaTransformerBenchmark {
+
+	/**
+	 * With incremental generation the unchanged classes are skipped, without
+	 * all classes are generated, formatted and compared on every run.
+	 */
+	@Param({ "false", "true" })
+	private boolean incremental;
+
+	private JavaTransformer javaTransformer;
+
+	private Context context;
+
+	private File directory;
+
+	@Setup
+	public void setUp() throws IOException {
+		javaTransformer = BenchmarkModels.createInjector().getInstance(
+				JavaTransformer.class);
+		javaTransformer.setIncremental(incremental);
+		directory = BenchmarkModels.createTempDirectory("andromda-java");
+		File modelDirectory = new File(directory, "model");
+		File targetDirectory = new File(directory, "java");
+		if (!modelDirectory.mkdir() || !targetDirectory.mkdir()) {
+			throw new IOException("Cannot create directories in " + directory);
+		}
+		context = new StandardContext();
+		context.setSourceModel(BenchmarkModels.getTestModel(modelDirectory)
+				.getPath());
+		context.setTargetModel(targetDirectory.getPath());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		BenchmarkModels.delete(directory);
+	}
+
+	@Benchmark
+	public JavaTransformer transform() {
+		javaTransformer.transform(context);
+		return javaTransformer;
+	}
+}
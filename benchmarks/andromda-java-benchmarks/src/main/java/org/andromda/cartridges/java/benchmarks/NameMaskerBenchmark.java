@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.andromda.cartridges.java.NameMasker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link NameMasker#mask(String, String)} and the remembered
+ * {@link NameMasker#mask(String, NameMasker.Mask)} for the masks used by the
+ * generator, over names of several lengths.
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NameMaskerBenchmark {
+
+	@Param({ "16", "64", "512" })
+	private int length;
+
+	@Param({ NameMasker.UPPERUNDERSCORE, NameMasker.UPPERCAMELCASE,
+			NameMasker.NOACCENT, NameMasker.NONE })
+	private String mask;
+
+	private NameMasker nameMasker;
+
+	private NameMasker.Mask compiledMask;
+
+	private String name;
+
+	@Setup
+	public void setUp() {
+		nameMasker = BenchmarkModels.createInjector().getInstance(
+				NameMasker.class);
+		compiledMask = NameMasker.Mask.of(mask);
+		name = BenchmarkModels.createName(length);
+	}
+
+	@Benchmark
+	public String mask() {
+		return nameMasker.mask(name, mask);
+	}
+
+	@Benchmark
+	public String maskCompiled() {
+		return nameMasker.mask(name, compiledMask);
+	}
+}
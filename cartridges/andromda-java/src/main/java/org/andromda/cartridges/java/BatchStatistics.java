@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timings and counts of a batch of transformations, per model and in total.
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class BatchStatistics {
+
+	private final List<Entry> entries = new ArrayList<Entry>();
+
+	/**
+	 * @return the timings and counts of each model, in the order the models
+	 *         were transformed
+	 */
+	public List<Entry> getEntries() {
+		return Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * @return the time spent loading the models, in milliseconds
+	 */
+	public long getLoadMillis() {
+		long nanos = 0;
+		for (Entry entry : entries) {
+			nanos += entry.loadNanos;
+		}
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+
+	/**
+	 * @return the time spent transforming the models, in milliseconds
+	 */
+	public long getTransformMillis() {
+		long nanos = 0;
+		for (Entry entry : entries) {
+			nanos += entry.transformNanos;
+		}
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+
+	/**
+	 * @return the number of files written for all models
+	 */
+	public int getWritten() {
+		int written = 0;
+		for (Entry entry : entries) {
+			written += entry.statistics.getWritten();
+		}
+		return written;
+	}
+
+	void add(String sourceModel, long loadNanos, long transformNanos,
+			GenerationStatistics statistics) {
+		entries.add(new Entry(sourceModel, loadNanos, transformNanos,
+				statistics));
+	}
+
+	@Override
+	public String toString() {
+		return entries.size() + " models, load " + getLoadMillis()
+				+ " ms, transform " + getTransformMillis() + " ms, "
+				+ getWritten() + " written";
+	}
+
+	/**
+	 * Timings and counts of one model of the batch.
+	 */
+	public static final class Entry {
+
+		private final String sourceModel;
+
+		private final long loadNanos;
+
+		private final long transformNanos;
+
+		private final GenerationStatistics statistics;
+
+		private Entry(String sourceModel, long loadNanos, long transformNanos,
+				GenerationStatistics statistics) {
+			this.sourceModel = sourceModel;
+			this.loadNanos = loadNanos;
+			this.transformNanos = transformNanos;
+			this.statistics = statistics;
+		}
+
+		/**
+		 * @return the model file
+		 */
+		public String getSourceModel() {
+			return sourceModel;
+		}
+
+		/**
+		 * @return the time spent loading the model and the profiles not
+		 *         loaded by an earlier model, in milliseconds
+		 */
+		public long getLoadMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(loadNanos);
+		}
+
+		/**
+		 * @return the time spent transforming the model, in milliseconds
+		 */
+		public long getTransformMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(transformNanos);
+		}
+
+		/**
+		 * @return the counts of the transformation
+		 */
+		public GenerationStatistics getStatistics() {
+			return statistics;
+		}
+
+		@Override
+		public String toString() {
+			return sourceModel + ": load " + getLoadMillis()
+					+ " ms, transform " + getTransformMillis() + " ms, "
+					+ statistics;
+		}
+	}
+}
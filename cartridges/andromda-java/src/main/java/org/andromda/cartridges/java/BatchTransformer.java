@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import java.io.File;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.inject.Inject;
+
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import de.crowdcode.kissmda.core.Context;
+import de.crowdcode.kissmda.core.TransformerException;
+
+/**
+ * Transforms many models in one run, e.g. the models of all modules of a
+ * multi-module build. Each model is loaded into a resource set of its own,
+ * which takes the profiles from a resource set shared by all models, so the
+ * profiles are parsed only once. After its transformation the model and
+ * everything else it loaded are unloaded, the profiles stay loaded and are
+ * never modified.
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class BatchTransformer {
+
+	private static final Logger logger = Logger
+			.getLogger(BatchTransformer.class.getName());
+
+	@Inject
+	private JavaTransformer javaTransformer;
+
+	@Inject
+	private ModelLoader modelLoader;
+
+	private BatchStatistics statistics = new BatchStatistics();
+
+	/**
+	 * The Java transformer which transforms each model. Configure it before
+	 * running the batch.
+	 *
+	 * @return the Java transformer
+	 */
+	public JavaTransformer getJavaTransformer() {
+		return javaTransformer;
+	}
+
+	/**
+	 * The timings and counts of the last batch.
+	 *
+	 * @return the statistics of the last batch
+	 */
+	public BatchStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Transform the models, each with its own context.
+	 *
+	 * @param contexts
+	 *            the source model and target directory of each model
+	 * @exception throw
+	 *                TransformerException if something wrong happens, the
+	 *                models after the failed one are not transformed
+	 */
+	public void transform(List<? extends Context> contexts)
+			throws TransformerException {
+		statistics = new BatchStatistics();
+		long start = System.nanoTime();
+		ResourceSet profiles = modelLoader.createResourceSet();
+		for (Context context : contexts) {
+			long loadStart = System.nanoTime();
+			ResourceSet resourceSet = modelLoader.createResourceSet(profiles);
+			Resource resource = resourceSet.getResource(
+					modelLoader.getURI(new File(context.getSourceModel())),
+					true);
+			// Profiles already loaded by an earlier model are reused
+			EcoreUtil.resolveAll(resource);
+			long transformStart = System.nanoTime();
+			try {
+				javaTransformer.transform(context,
+						modelLoader.getRootPackage(resource));
+			} finally {
+				// Nothing of this model can be resolved by the next one
+				for (Resource loaded : resourceSet.getResources()) {
+					loaded.unload();
+				}
+				resourceSet.getResources().clear();
+			}
+			statistics.add(context.getSourceModel(), transformStart
+					- loadStart, System.nanoTime() - transformStart,
+					javaTransformer.getStatistics());
+		}
+		logger.log(Level.INFO, "Batch of " + statistics + ", total "
+				+ (System.nanoTime() - start) / 1000000 + " ms");
+		for (BatchStatistics.Entry entry : statistics.getEntries()) {
+			logger.log(Level.FINE, entry.toString());
+		}
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import javax.inject.Inject;
+
+import de.crowdcode.kissmda.core.Context;
+import de.crowdcode.kissmda.core.file.JavaFileWriter;
+
+/**
+ * Writes a Java file only if its content changed. Files with the same content
+ * are left untouched, so their timestamps are kept and javac, the IDE or an
+ * incremental Maven build do not process them again.
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class ChangedJavaFileWriter {
+
+	@Inject
+	private JavaFileWriter javaFileWriter;
+
+	/**
+	 * Create the Java file unless a file with the same content already exists.
+	 * The content is compared in the encoding the JavaFileWriter writes with.
+	 *
+	 * @param context
+	 *            context object from Maven plugin
+	 * @param fullPackageName
+	 *            the package of the class
+	 * @param className
+	 *            the name of the class
+	 * @param fileContent
+	 *            the formatted code
+	 * @return true if the file was written, false if it was unchanged
+	 * @throws IOException
+	 *             input or output error on file system
+	 */
+	public boolean createJavaFile(Context context, String fullPackageName,
+			String className, String fileContent) throws IOException {
+		File javaFile = getJavaFile(new File(context.getTargetModel()),
+				fullPackageName, className);
+		byte[] content = fileContent.getBytes(Charset.defaultCharset());
+		if (hasContent(javaFile, content)) {
+			return false;
+		}
+		javaFileWriter.createJavaFile(context, fullPackageName, className,
+				fileContent);
+		return true;
+	}
+
+	/**
+	 * The Java file of a class, laid out the same way as the JavaFileWriter
+	 * of KissMDA does.
+	 *
+	 * @param targetDirectory
+	 *            the directory the Java files are generated into
+	 * @param fullPackageName
+	 *            the package of the class
+	 * @param className
+	 *            the name of the class
+	 * @return the Java file
+	 */
+	public static File getJavaFile(File targetDirectory,
+			String fullPackageName, String className) {
+		return new File(new File(targetDirectory, fullPackageName.replace(".",
+				File.separator)), className + ".java");
+	}
+
+	private boolean hasContent(File file, byte[] content) throws IOException {
+		// Different lengths need no read at all
+		if (!file.isFile() || file.length() != content.length) {
+			return false;
+		}
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		try {
+			for (byte b : content) {
+				if (in.read() != (b & 0xFF)) {
+					return false;
+				}
+			}
+			return in.read() == -1;
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+/**
+ * Appends generated code to a char buffer which is kept between the
+ * generated classes. Lines are indented by the emitter itself, nothing is
+ * parsed per call as with a format string, and a Javadoc comment is written
+ * from its text without splitting it into an array of lines first.
+ *
+ * <p>
+ * An emitter is used by one thread at a time. A generator keeps one per
+ * thread and {@link #reset() resets} it for each class.
+ * </p>
+ *
+ * <pre>
+ * emitter.append(&quot;public enum &quot;).append(name).append(&quot; {&quot;).newLine()
+ * 		.indent();
+ * </pre>
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class CodeEmitter {
+
+	private static final int INITIAL_CAPACITY = 4096;
+
+	/**
+	 * A buffer grown beyond this for a huge class is not kept for the next
+	 * one.
+	 */
+	private static final int MAX_RETAINED_CAPACITY = 256 * 1024;
+
+	private final String lineSeparator;
+
+	private final String indentation;
+
+	private StringBuilder buffer = new StringBuilder(INITIAL_CAPACITY);
+
+	private int level;
+
+	private boolean lineStart = true;
+
+	/**
+	 * Create an emitter which ends lines with the line separator of the
+	 * platform, like a {@link java.io.PrintWriter} does, and indents with
+	 * tabs.
+	 */
+	public CodeEmitter() {
+		this(System.getProperty("line.separator"), "\t");
+	}
+
+	/**
+	 * Create an emitter.
+	 *
+	 * @param lineSeparator
+	 *            the line separator
+	 * @param indentation
+	 *            the text of one indentation level
+	 */
+	public CodeEmitter(String lineSeparator, String indentation) {
+		this.lineSeparator = lineSeparator;
+		this.indentation = indentation;
+	}
+
+	/**
+	 * Clear the emitter for the next class. The buffer is kept unless it grew
+	 * very large.
+	 *
+	 * @return this emitter
+	 */
+	public CodeEmitter reset() {
+		if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+			buffer = new StringBuilder(INITIAL_CAPACITY);
+		} else {
+			buffer.setLength(0);
+		}
+		level = 0;
+		lineStart = true;
+		return this;
+	}
+
+	/**
+	 * Indent the following lines one level more.
+	 *
+	 * @return this emitter
+	 */
+	public CodeEmitter indent() {
+		level++;
+		return this;
+	}
+
+	/**
+	 * Indent the following lines one level less.
+	 *
+	 * @return this emitter
+	 */
+	public CodeEmitter outdent() {
+		if (level == 0) {
+			throw new IllegalStateException("Not indented");
+		}
+		level--;
+		return this;
+	}
+
+	/**
+	 * Append text to the current line.
+	 *
+	 * @param text
+	 *            the text, must not contain line breaks
+	 * @return this emitter
+	 */
+	public CodeEmitter append(CharSequence text) {
+		startLine();
+		buffer.append(text);
+		return this;
+	}
+
+	/**
+	 * Append part of a text to the current line.
+	 *
+	 * @param text
+	 *            the text
+	 * @param start
+	 *            the index of the first char
+	 * @param end
+	 *            the index after the last char, the part must not contain line
+	 *            breaks
+	 * @return this emitter
+	 */
+	public CodeEmitter append(CharSequence text, int start, int end) {
+		startLine();
+		buffer.append(text, start, end);
+		return this;
+	}
+
+	/**
+	 * Append a char to the current line.
+	 *
+	 * @param c
+	 *            the char, must not be a line break
+	 * @return this emitter
+	 */
+	public CodeEmitter append(char c) {
+		startLine();
+		buffer.append(c);
+		return this;
+	}
+
+	/**
+	 * End the current line.
+	 *
+	 * @return this emitter
+	 */
+	public CodeEmitter newLine() {
+		buffer.append(lineSeparator);
+		lineStart = true;
+		return this;
+	}
+
+	/**
+	 * Append a whole line.
+	 *
+	 * @param line
+	 *            the text of the line
+	 * @return this emitter
+	 */
+	public CodeEmitter line(CharSequence line) {
+		return append(line).newLine();
+	}
+
+	/**
+	 * Append a Javadoc comment.
+	 *
+	 * @param text
+	 *            the text of the comment, each line of it becomes a line of
+	 *            the comment; line breaks at its end are ignored
+	 * @return this emitter
+	 */
+	public CodeEmitter javadoc(CharSequence text) {
+		return beginJavadoc().javadocLines(text).endJavadoc();
+	}
+
+	/**
+	 * Open a Javadoc comment.
+	 *
+	 * @return this emitter
+	 */
+	public CodeEmitter beginJavadoc() {
+		return line("/**");
+	}
+
+	/**
+	 * Append lines to the open Javadoc comment.
+	 *
+	 * @param text
+	 *            the text, each line of it becomes a line of the comment;
+	 *            line breaks at its end are ignored
+	 * @return this emitter
+	 */
+	public CodeEmitter javadocLines(CharSequence text) {
+		int length = text.length();
+		while (length > 0 && text.charAt(length - 1) == '\n') {
+			length--;
+		}
+		if (length == 0) {
+			return this;
+		}
+		int start = 0;
+		for (int i = 0; i < length; i++) {
+			if (text.charAt(i) == '\n') {
+				append(" * ").append(text, start, i).newLine();
+				start = i + 1;
+			}
+		}
+		return append(" * ").append(text, start, length).newLine();
+	}
+
+	/**
+	 * Close the open Javadoc comment.
+	 *
+	 * @return this emitter
+	 */
+	public CodeEmitter endJavadoc() {
+		return line(" */");
+	}
+
+	/**
+	 * @return the length of the code appended so far
+	 */
+	public int length() {
+		return buffer.length();
+	}
+
+	/**
+	 * @return the code appended so far
+	 */
+	@Override
+	public String toString() {
+		return buffer.toString();
+	}
+
+	private void startLine() {
+		if (lineStart) {
+			lineStart = false;
+			for (int i = 0; i < level; i++) {
+				buffer.append(indentation);
+			}
+		}
+	}
+}
@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+/**
+ * How the transformer finds the stereotyped elements of the model.
+ * 
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public enum ElementDiscovery {
+
+	/**
+	 * Walk every element of the model and check its applied stereotypes. The
+	 * default.
+	 */
+	MODEL_WALK,
+
+	/**
+	 * Read the stereotype applications of the model resources and map them
+	 * back to their base elements. Only the stereotyped elements are visited.
+	 */
+	STEREOTYPE_APPLICATIONS
+}
@@ -18,18 +18,19 @@ x * Licensed to the Apache Software Foundation (ASF) under one
  */
 package org.andromda.cartridges.java;
 
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.inject.Inject;
 
 import org.apache.commons.lang3.StringUtils;
-import org.eclipse.emf.common.util.EList;
-import org.eclipse.uml2.uml.Class;
 import org.eclipse.uml2.uml.Classifier;
-import org.eclipse.uml2.uml.Property;
 
 import de.crowdcode.kissmda.core.uml.PackageHelper;
 
@@ -42,59 +43,159 @@ import de.crowdcode.kissmda.core.uml.PackageHelper;
  */
 public class EnumClassGenerator {
 
+	/**
+	 * The version of the generated code. Change it whenever the generated code
+	 * changes, so that incremental runs generate all classes again.
+	 */
+	public static final String VERSION = "1.3.1";
+
+	/**
+	 * Enumerations of int values with up to this many literals look their
+	 * values up with a <code>switch</code>, larger ones and those of other
+	 * types with a hash map built once.
+	 */
+	public static final int SWITCH_LOOKUP_MAX_LITERALS = 16;
+
+	/**
+	 * The Java primitive types of the UML primitive types, by their qualified
+	 * name. The primitive type is used if the attribute is not nullable.
+	 */
+	private static final Map<String, String> PRIMITIVE_TYPES = new HashMap<String, String>();
+
+	/**
+	 * The wrapper types of the Java primitive types.
+	 */
+	private static final Map<String, String> BOXED_TYPES = new HashMap<String, String>();
+
+	static {
+		for (String library : new String[] { "PrimitiveTypes",
+				"UMLPrimitiveTypes" }) {
+			PRIMITIVE_TYPES.put(library + "::Integer", "int");
+			PRIMITIVE_TYPES.put(library + "::Boolean", "boolean");
+		}
+		PRIMITIVE_TYPES.put("JavaPrimitiveTypes::int", "int");
+		PRIMITIVE_TYPES.put("JavaPrimitiveTypes::long", "long");
+		PRIMITIVE_TYPES.put("JavaPrimitiveTypes::boolean", "boolean");
+		BOXED_TYPES.put("int", "Integer");
+		BOXED_TYPES.put("long", "Long");
+		BOXED_TYPES.put("boolean", "Boolean");
+	}
+
 	private static final Logger logger = Logger.getLogger(EnumClassGenerator.class.getName());
 
 	@Inject
 	private PackageHelper packageHelper;
 	
-	@Inject
-	private AndromdaHelper andromdaHelper;
-	
 	@Inject
 	private NameMasker nameMasker;
 	
 	private String sourceDirectoryPackageName;
-	private String javaType;
+
+	private volatile boolean generateCodecs;
+
+	/**
+	 * One emitter per thread, its buffer is reused for every class.
+	 */
+	private final ThreadLocal<CodeEmitter> emitters = new ThreadLocal<CodeEmitter>() {
+		@Override
+		protected CodeEmitter initialValue() {
+			return new CodeEmitter();
+		}
+	};
 	
+	/**
+	 * Whether the enumerations get the methods encoding them without
+	 * reflection, false unless configured.
+	 * 
+	 * @return true if the codec methods are generated
+	 */
+	public boolean isGenerateCodecs() {
+		return generateCodecs;
+	}
+
+	/**
+	 * Generate the methods encoding the enumerations without reflection: to
+	 * and from their ordinal and a byte, to a {@link java.io.DataOutput} and
+	 * from a {@link java.io.DataInput}, and to a JSON token created once.
+	 * 
+	 * @param generateCodecs
+	 *            true to generate the codec methods
+	 */
+	public void setGenerateCodecs(boolean generateCodecs) {
+		this.generateCodecs = generateCodecs;
+	}
+
+	/**
+	 * The version of the generated code, including the options it depends
+	 * on.
+	 * 
+	 * @return the version
+	 */
+	public String getVersion() {
+		return generateCodecs ? VERSION + "+codecs" : VERSION;
+	}
+
 	/**
 	 * Generate the Enum from the <<Enumeration>> class.
 	 * 
-	 * @param Class
-	 *            clazz the UML class
+	 * @param clazz
+	 *            the UML class
 	 * @return the complete class with its content as a String
 	 */
 	public String generateEnumClass(Classifier clazz) {
+		ModelSnapshot.Builder builder = new ModelSnapshot.Builder();
+		int element = builder.add(clazz, getJavaPackageName(clazz));
+		return generateEnumClass(builder.build(), element);
+	}
 
-	    StringWriter outString= new StringWriter();
-		PrintWriter writer=new PrintWriter(outString);
+	/**
+	 * Generate the Enum from a <<Enumeration>> class of a model snapshot,
+	 * without reading the UML model.
+	 * 
+	 * @param model
+	 *            the snapshot of the model
+	 * @param clazz
+	 *            the index of the UML class in the snapshot
+	 * @return the complete class with its content as a String
+	 */
+	public String generateEnumClass(ModelSnapshot model, int clazz) {
+		CodeEmitter emitter = emitters.get().reset();
 
-		javaType = clazz.getAttributes().iterator().next().getType().getName();
-		
-		generatePackage(clazz, writer);
-		generateEnum(clazz, writer);
-		
-		writer.flush();
+		generatePackage(model, clazz, emitter);
+		generateEnum(model, clazz, emitter);
 
-		String fileContent = outString.toString();
-		logger.log(Level.INFO, "Compilation unit: \n\n" + fileContent);
+		String fileContent = emitter.toString();
+		if (logger.isLoggable(Level.FINE)) {
+			logger.log(Level.FINE, "Compilation unit: \n\n" + fileContent);
+		}
 		return fileContent;
 	}
 
-	protected static final String FROM_STRING_COMMENT = "Retrieves an instance of %s from <code>its name</code>.";
+	protected static final String FROM_STRING_COMMENT_START = "Retrieves an instance of ";
+
+	protected static final String FROM_STRING_COMMENT_END = " from <code>its name</code>.";
 	
     /**
      * Generate the fromString method.
      * 
-     * @param Class
-     *              clazz the UML class
-     * @param PrintWriter
-     *              the writer used to write the code
+     * @param model
+     *              the snapshot of the model
+     * @param clazz
+     *              the index of the UML class in the snapshot
+     * @param javaType
+     *              the Java type of the enumeration literal values
+     * @param emitter
+     *              the emitter used to write the code
      */
-	protected void generateFromStringMethod(Classifier clazz, PrintWriter writer) {
-        String className = clazz.getName();
-        generateSimpleComment(writer, String.format(FROM_STRING_COMMENT, className));
-        writer.format("public static %s fromString(%s value) { return %s.valueOf(value); }",className,javaType,className);
-        writer.println();
+	protected void generateFromStringMethod(ModelSnapshot model, int clazz, String javaType, CodeEmitter emitter) {
+        String className = model.getName(clazz);
+        emitter.beginJavadoc().append(" * ").append(FROM_STRING_COMMENT_START)
+                .append(className).append(FROM_STRING_COMMENT_END).newLine()
+                .endJavadoc();
+        // valueOf takes the name of the literal, whatever the type of the values
+        emitter.append("public static ").append(className)
+                .append(" fromString(String value) { return ").append(className)
+                .append(".valueOf(value); }").newLine();
 	}
 
 	protected static final String VALUE_COMMENT = "Returns an enumeration literal String <code>value</code>.";
@@ -102,15 +203,19 @@ public class EnumClassGenerator {
     /**
      * Generate the value method.
      * 
-     * @param Class
-     *              clazz the UML class
-     * @param PrintWriter
-     *              the writer used to write the code
+     * @param model
+     *              the snapshot of the model
+     * @param clazz
+     *              the index of the UML class in the snapshot
+     * @param javaType
+     *              the Java type of the enumeration literal values
+     * @param emitter
+     *              the emitter used to write the code
      */
-	protected void generateValueMethod(Classifier clazz, PrintWriter writer) {
-        generateSimpleComment(writer, String.format(VALUE_COMMENT, clazz.getName()));
-        writer.format("public %s value() { return this.enumValue; }",javaType);
-        writer.println();
+	protected void generateValueMethod(ModelSnapshot model, int clazz, String javaType, CodeEmitter emitter) {
+        emitter.javadoc(VALUE_COMMENT);
+        emitter.append("public ").append(javaType)
+                .append(" value() { return this.enumValue; }").newLine();
     }
 	
 	protected static final String PRIVATE_CONSTRUCTOR_COMMENT = "The constructor with enumeration literal value allowing super classes to access it.";
@@ -118,17 +223,36 @@ public class EnumClassGenerator {
     /**
      * Generate the private constructor.
      * 
-     * @param Class
-     *              clazz the UML class
-     * @param PrintWriter
-     *              the writer used to write the code
-     */
-    protected void generateConstructor(Classifier clazz, PrintWriter writer) {
-        writer.format("private final %s enumValue;",javaType);
-        writer.println();
-        generateSimpleComment(writer, PRIVATE_CONSTRUCTOR_COMMENT);
-        writer.format("private %s(%s value) { this.enumValue = value; }",clazz.getName(),javaType);
-        writer.println();
+     * @param model
+     *              the snapshot of the model
+     * @param clazz
+     *              the index of the UML class in the snapshot
+     * @param javaType
+     *              the Java type of the enumeration literal values
+     * @param codecs
+     *              whether the codec methods are generated
+     * @param emitter
+     *              the emitter used to write the code
+     */
+    protected void generateConstructor(ModelSnapshot model, int clazz, String javaType, boolean codecs, CodeEmitter emitter) {
+        emitter.append("private final ").append(javaType).append(" enumValue;")
+                .newLine();
+        if (codecs) {
+            emitter.javadoc(JSON_FIELD_COMMENT);
+            emitter.line("private final String json;");
+        }
+        emitter.javadoc(PRIVATE_CONSTRUCTOR_COMMENT);
+        emitter.append("private ").append(model.getName(clazz)).append('(')
+                .append(javaType);
+        if (!codecs) {
+            emitter.append(" value) { this.enumValue = value; }").newLine();
+            return;
+        }
+        emitter.append(" value) {").newLine();
+        emitter.line("this.enumValue = value;");
+        emitter.line("String".equals(javaType) ? "this.json = quote(value);"
+                : "this.json = String.valueOf(value);");
+        emitter.line("}");
     }
 
     private static String SERIAL_VERSION_UID_COMMENT = "The serial version UID of this class. Needed for serialization.";
@@ -136,115 +260,577 @@ public class EnumClassGenerator {
     /**
      * Generate the serialVersionUID.
      * 
-     * @param Class
-     *              clazz the UML class
-     * @param PrintWriter
-     *              the writer used to write the code
+     * @param model
+     *              the snapshot of the model
+     * @param clazz
+     *              the index of the UML class in the snapshot
+     * @param emitter
+     *              the emitter used to write the code
      */
-    public void generateSerialVersionUID(Classifier clazz, PrintWriter writer) {
-        logger.log(Level.FINE, "Class: " + clazz.getName() + " - serialVersionUID");
+    public void generateSerialVersionUID(ModelSnapshot model, int clazz, CodeEmitter emitter) {
+        if (logger.isLoggable(Level.FINE)) {
+            logger.log(Level.FINE, "Class: " + model.getName(clazz) + " - serialVersionUID");
+        }
 
-        generateSimpleComment(writer, SERIAL_VERSION_UID_COMMENT);
+        emitter.javadoc(SERIAL_VERSION_UID_COMMENT);
 
         //TODO generate a number based in class attributes, name, etc.
-        writer.println("private static final long serialVersionUID = 1L;");
+        emitter.line("private static final long serialVersionUID = 1L;");
     }
 
 	/**
 	 * Generate the Enum class.
 	 * 
-     * @param Class
-     *              clazz the UML class
-     * @param PrintWriter
-     *              the writer used to write the code
-     */
-	public void generateEnum(Classifier clazz, PrintWriter writer) {
-	    writer.println("public enum "+getClassName(clazz)+" {");
-	    
-        generateConstants(clazz, writer);
-        generateSerialVersionUID(clazz, writer);
-        generateConstructor(clazz, writer);
-        generateFromStringMethod(clazz, writer);
-        generateValueMethod(clazz, writer);
+     * @param model
+     *              the snapshot of the model
+     * @param clazz
+     *              the index of the UML class in the snapshot
+     * @param emitter
+     *              the emitter used to write the code
+     */
+	public void generateEnum(ModelSnapshot model, int clazz, CodeEmitter emitter) {
+        int start = model.getAttributeStart(clazz);
+        int literals = model.getAttributeEnd(clazz) - start;
+        // Without attributes there is no type to take, the values are Strings
+        String javaType = literals == 0 ? "String" : getJavaType(model, start);
+        boolean switchLookup = isSwitchLookup(javaType, literals);
+        boolean codecs = generateCodecs;
+        generateImports(switchLookup, codecs, emitter);
+
+	    emitter.append("public enum ").append(model.getName(clazz)).append(" {").newLine();
+
+        List<Constant> constants = generateConstants(model, clazz, emitter);
+        generateSerialVersionUID(model, clazz, emitter);
+        generateLookupFields(model, clazz, javaType, switchLookup, emitter);
+        if (codecs) {
+            generateLiteralsField(model, clazz, emitter);
+        }
+        generateConstructor(model, clazz, javaType, codecs, emitter);
+        generateFromStringMethod(model, clazz, javaType, emitter);
+        generateValueMethod(model, clazz, javaType, emitter);
+        generateFromValueMethod(model, clazz, javaType, switchLookup, constants, emitter);
+        if (isPrimitive(javaType)) {
+            generateFromBoxedValueMethod(model, clazz, javaType, emitter);
+        }
+        generateValueListMethods(model, clazz, emitter);
+        if (!switchLookup) {
+            generateValueIndexMethod(model, clazz, javaType, constants, emitter);
+        }
+        if (codecs) {
+            generateCodecMethods(model, clazz, javaType, constants.size(), emitter);
+        }
         
-        writer.println("}");
+        emitter.line("}");
 	}
 
-	protected void generateSimpleComment(PrintWriter writer, String...lines){
-        writer.println("/**");
-        for(String line: lines){
-            writer.print(" * ");
-            writer.println(line);
+    /**
+     * Whether the values are looked up with a <code>switch</code>, which is
+     * only done for Integer and int values. A switch on a String needs Java 7,
+     * the generated code still compiles with Java 5.
+     * 
+     * @param javaType
+     *              the Java type of the enumeration literal values
+     * @param literals
+     *              the number of enumeration literals
+     * @return false to look the values up in a hash map
+     */
+    protected boolean isSwitchLookup(String javaType, int literals) {
+        return literals <= SWITCH_LOOKUP_MAX_LITERALS
+                && ("Integer".equals(javaType) || "int".equals(javaType));
+    }
+
+    /**
+     * Whether the values are of a Java primitive type.
+     * 
+     * @param javaType
+     *              the Java type of the enumeration literal values
+     * @return true for int, long and boolean
+     */
+    protected boolean isPrimitive(String javaType) {
+        return BOXED_TYPES.containsKey(javaType);
+    }
+
+    /**
+     * The type of the values in a collection, the wrapper type for a Java
+     * primitive type.
+     * 
+     * @param javaType
+     *              the Java type of the enumeration literal values
+     * @return the type to use as type argument
+     */
+    protected String getBoxedType(String javaType) {
+        String boxedType = BOXED_TYPES.get(javaType);
+        return boxedType == null ? javaType : boxedType;
+    }
+
+    /**
+     * Generate the imports of the collections used by the lookup methods and
+     * of the streams used by the codec methods.
+     * 
+     * @param switchLookup
+     *              whether the values are looked up with a switch
+     * @param codecs
+     *              whether the codec methods are generated
+     * @param emitter
+     *              the emitter used to write the code
+     */
+    protected void generateImports(boolean switchLookup, boolean codecs, CodeEmitter emitter) {
+        if (codecs) {
+            emitter.line("import java.io.DataInput;");
+            emitter.line("import java.io.DataOutput;");
+            emitter.line("import java.io.IOException;");
+            emitter.line("import java.io.StreamCorruptedException;");
         }
-        writer.println(" */");
-	}
-	
+        emitter.line("import java.util.Arrays;");
+        emitter.line("import java.util.Collections;");
+        if (!switchLookup) {
+            emitter.line("import java.util.HashMap;");
+        }
+        emitter.line("import java.util.List;");
+        if (!switchLookup) {
+            emitter.line("import java.util.Map;");
+        }
+    }
+
+    protected static final String VALUE_LIST_FIELD_COMMENT = "The enumeration literals in declaration order.";
+
+    protected static final String VALUE_INDEX_FIELD_COMMENT = "The enumeration literals by their value.";
+
+    /**
+     * Generate the static fields holding the list of the literals and, unless
+     * the values are looked up with a switch, the index of the values. Their
+     * names are lower case, so they never clash with a literal.
+     * 
+     * @param model
+     *              the snapshot of the model
+     * @param clazz
+     *              the index of the UML class in the snapshot
+     * @param javaType
+     *              the Java type of the enumeration literal values
+     * @param switchLookup
+     *              whether the values are looked up with a switch
+     * @param emitter
+     *              the emitter used to write the code
+     */
+    protected void generateLookupFields(ModelSnapshot model, int clazz, String javaType,
+            boolean switchLookup, CodeEmitter emitter) {
+        String className = model.getName(clazz);
+        emitter.javadoc(VALUE_LIST_FIELD_COMMENT);
+        emitter.append("private static final List<").append(className)
+                .append("> valueList = listValues();").newLine();
+        if (!switchLookup) {
+            emitter.javadoc(VALUE_INDEX_FIELD_COMMENT);
+            emitter.append("private static final Map<")
+                    .append(getBoxedType(javaType)).append(", ").append(className)
+                    .append("> valueIndex = indexValues();").newLine();
+        }
+    }
+
+    protected static final String FROM_VALUE_COMMENT = "Retrieves the enumeration literal with the given <code>value</code>, null if there is none.";
+
+    /**
+     * Generate the fromValue method, which looks a literal up by its value.
+     * When several literals have the same value, the first one is found.
+     * 
+     * @param model
+     *              the snapshot of the model
+     * @param clazz
+     *              the index of the UML class in the snapshot
+     * @param javaType
+     *              the Java type of the enumeration literal values
+     * @param switchLookup
+     *              whether the values are looked up with a switch
+     * @param constants
+     *              the generated constants
+     * @param emitter
+     *              the emitter used to write the code
+     */
+    protected void generateFromValueMethod(ModelSnapshot model, int clazz, String javaType,
+            boolean switchLookup, List<Constant> constants, CodeEmitter emitter) {
+        String className = model.getName(clazz);
+        emitter.javadoc(FROM_VALUE_COMMENT);
+        emitter.append("public static ").append(className).append(" fromValue(")
+                .append(javaType).append(" value)");
+        if (!switchLookup) {
+            emitter.append(" { return valueIndex.get(value); }").newLine();
+            return;
+        }
+        emitter.append(" {").newLine();
+        if (!isPrimitive(javaType)) {
+            emitter.line("if (value == null) {").line("return null;").line("}");
+        }
+        emitter.append("switch (value")
+                .append("Integer".equals(javaType) ? ".intValue()" : "")
+                .append(") {").newLine();
+        Set<String> values = new HashSet<String>();
+        for (Constant constant : constants) {
+            // A duplicate label would not compile
+            if (values.add(constant.value)) {
+                emitter.append("case ").append(constant.value).append(" :").newLine();
+                emitter.append("return ").append(constant.name).append(';').newLine();
+            }
+        }
+        emitter.line("default :").line("return null;");
+        emitter.line("}").line("}");
+    }
+
+    protected static final String FROM_BOXED_VALUE_COMMENT = "Retrieves the enumeration literal with the given boxed <code>value</code>, null if the value is null or there is none.";
+
+    /**
+     * Generate the overload of the fromValue method taking the wrapper of a
+     * primitive value, for callers holding a value which may be null.
+     * 
+     * @param model
+     *              the snapshot of the model
+     * @param clazz
+     *              the index of the UML class in the snapshot
+     * @param javaType
+     *              the Java primitive type of the enumeration literal values
+     * @param emitter
+     *              the emitter used to write the code
+     */
+    protected void generateFromBoxedValueMethod(ModelSnapshot model, int clazz, String javaType,
+            CodeEmitter emitter) {
+        emitter.javadoc(FROM_BOXED_VALUE_COMMENT);
+        emitter.append("public static ").append(model.getName(clazz))
+                .append(" fromValue(").append(getBoxedType(javaType))
+                .append(" value) {").newLine();
+        emitter.line("if (value == null) {").line("return null;").line("}");
+        emitter.append("return fromValue(value.").append(javaType)
+                .append("Value());").newLine();
+        emitter.line("}");
+    }
+
+    protected static final String VALUE_LIST_COMMENT = "Returns all enumeration literals in an unmodifiable list, which unlike <code>values()</code> is not copied on each call.";
+
+    /**
+     * Generate the valueList method and the method creating the list.
+     * 
+     * @param model
+     *              the snapshot of the model
+     * @param clazz
+     *              the index of the UML class in the snapshot
+     * @param emitter
+     *              the emitter used to write the code
+     */
+    protected void generateValueListMethods(ModelSnapshot model, int clazz, CodeEmitter emitter) {
+        String className = model.getName(clazz);
+        emitter.javadoc(VALUE_LIST_COMMENT);
+        emitter.append("public static List<").append(className)
+                .append("> valueList() { return valueList; }").newLine();
+        emitter.append("private static List<").append(className)
+                .append("> listValues() {").newLine();
+        emitter.line("return Collections.unmodifiableList(Arrays.asList(values()));");
+        emitter.line("}");
+    }
+
+    /**
+     * Generate the method creating the index of the values. A literal is only
+     * put into the index if no earlier literal has the same value.
+     * 
+     * @param model
+     *              the snapshot of the model
+     * @param clazz
+     *              the index of the UML class in the snapshot
+     * @param javaType
+     *              the Java type of the enumeration literal values
+     * @param constants
+     *              the generated constants
+     * @param emitter
+     *              the emitter used to write the code
+     */
+    protected void generateValueIndexMethod(ModelSnapshot model, int clazz, String javaType,
+            List<Constant> constants, CodeEmitter emitter) {
+        String className = model.getName(clazz);
+        String keyType = getBoxedType(javaType);
+        emitter.append("private static Map<").append(keyType).append(", ")
+                .append(className).append("> indexValues() {").newLine();
+        emitter.append("Map<").append(keyType).append(", ").append(className)
+                .append("> index = new HashMap<").append(keyType).append(", ")
+                .append(className).append(">(")
+                .append(Integer.toString(constants.size() * 4 / 3 + 1))
+                .append(");").newLine();
+        Set<String> values = new HashSet<String>();
+        for (Constant constant : constants) {
+            if (values.add(constant.value)) {
+                emitter.append("index.put(").append(constant.value).append(", ")
+                        .append(constant.name).append(");").newLine();
+            }
+        }
+        emitter.line("return index;");
+        emitter.line("}");
+    }
+
+    protected static final String LITERALS_FIELD_COMMENT = "The enumeration literals by their ordinal.";
+
+    /**
+     * Generate the array of the literals the codec methods decode with.
+     * 
+     * @param model
+     *              the snapshot of the model
+     * @param clazz
+     *              the index of the UML class in the snapshot
+     * @param emitter
+     *              the emitter used to write the code
+     */
+    protected void generateLiteralsField(ModelSnapshot model, int clazz, CodeEmitter emitter) {
+        emitter.javadoc(LITERALS_FIELD_COMMENT);
+        emitter.append("private static final ").append(model.getName(clazz))
+                .append("[] literals = values();").newLine();
+    }
+
+    protected static final String JSON_FIELD_COMMENT = "The value as a JSON token.";
+
+    protected static final String TO_BYTE_COMMENT = "Encodes this enumeration literal as one byte, its ordinal. Literals added at the end keep the encoding of the others.";
+
+    protected static final String FROM_BYTE_COMMENT = "Decodes an enumeration literal encoded with <code>toByte()</code>, throws an IllegalArgumentException if the byte is unknown.";
+
+    protected static final String FROM_BYTE_UNKNOWN_COMMENT = "Decodes an enumeration literal encoded with <code>toByte()</code>, <code>unknown</code> if the byte is unknown.";
+
+    protected static final String FROM_ORDINAL_COMMENT = "Retrieves the enumeration literal with the given ordinal, throws an IllegalArgumentException if the ordinal is unknown.";
+
+    protected static final String FROM_ORDINAL_UNKNOWN_COMMENT = "Retrieves the enumeration literal with the given ordinal, <code>unknown</code> if the ordinal is unknown.";
+
+    protected static final String WRITE_TO_COMMENT = "Writes the ordinal of this enumeration literal.";
+
+    protected static final String READ_FROM_COMMENT = "Reads an enumeration literal written with <code>writeTo</code>, throws a StreamCorruptedException if the ordinal is unknown.";
+
+    protected static final String TO_JSON_COMMENT = "Returns the value of this enumeration literal as a JSON token, without creating it again.";
+
+    /**
+     * The most literals whose ordinal fits into an unsigned byte, larger
+     * enumerations are encoded in two bytes and get no byte methods.
+     */
+    private static final int MAX_BYTE_LITERALS = 256;
+
+    /**
+     * Generate the methods encoding the literals without reflection. Decoding
+     * an unknown ordinal either fails or returns the literal the caller
+     * passes for unknown ones.
+     * 
+     * @param model
+     *              the snapshot of the model
+     * @param clazz
+     *              the index of the UML class in the snapshot
+     * @param javaType
+     *              the Java type of the enumeration literal values
+     * @param literals
+     *              the number of enumeration literals
+     * @param emitter
+     *              the emitter used to write the code
+     */
+    protected void generateCodecMethods(ModelSnapshot model, int clazz, String javaType,
+            int literals, CodeEmitter emitter) {
+        String className = model.getName(clazz);
+        boolean byteEncoding = literals <= MAX_BYTE_LITERALS;
+        if (byteEncoding) {
+            emitter.javadoc(TO_BYTE_COMMENT);
+            emitter.line("public byte toByte() { return (byte) ordinal(); }");
+            emitter.javadoc(FROM_BYTE_COMMENT);
+            emitter.append("public static ").append(className)
+                    .append(" fromByte(byte encoded) { return fromOrdinal(encoded & 0xFF); }")
+                    .newLine();
+            emitter.javadoc(FROM_BYTE_UNKNOWN_COMMENT);
+            emitter.append("public static ").append(className)
+                    .append(" fromByte(byte encoded, ").append(className)
+                    .append(" unknown) { return fromOrdinal(encoded & 0xFF, unknown); }")
+                    .newLine();
+        }
+
+        emitter.javadoc(FROM_ORDINAL_COMMENT);
+        emitter.append("public static ").append(className)
+                .append(" fromOrdinal(int ordinal) {").newLine();
+        emitter.line("if (ordinal < 0 || ordinal >= literals.length) {");
+        emitter.line("throw new IllegalArgumentException(\"Unknown ordinal: \" + ordinal);");
+        emitter.line("}");
+        emitter.line("return literals[ordinal];");
+        emitter.line("}");
+        emitter.javadoc(FROM_ORDINAL_UNKNOWN_COMMENT);
+        emitter.append("public static ").append(className)
+                .append(" fromOrdinal(int ordinal, ").append(className)
+                .append(" unknown) {").newLine();
+        emitter.line("if (ordinal < 0 || ordinal >= literals.length) {");
+        emitter.line("return unknown;");
+        emitter.line("}");
+        emitter.line("return literals[ordinal];");
+        emitter.line("}");
+
+        String write = byteEncoding ? "writeByte" : "writeShort";
+        String read = byteEncoding ? "readUnsignedByte" : "readUnsignedShort";
+        emitter.javadoc(WRITE_TO_COMMENT);
+        emitter.append("public void writeTo(DataOutput out) throws IOException { out.")
+                .append(write).append("(ordinal()); }").newLine();
+        emitter.javadoc(READ_FROM_COMMENT);
+        emitter.append("public static ").append(className)
+                .append(" readFrom(DataInput in) throws IOException {").newLine();
+        emitter.append("int ordinal = in.").append(read).append("();").newLine();
+        emitter.line("if (ordinal >= literals.length) {");
+        emitter.line("throw new StreamCorruptedException(\"Unknown ordinal: \" + ordinal);");
+        emitter.line("}");
+        emitter.line("return literals[ordinal];");
+        emitter.line("}");
+
+        emitter.javadoc(TO_JSON_COMMENT);
+        emitter.line("public String toJson() { return json; }");
+        if ("String".equals(javaType)) {
+            emitter.line("private static String quote(String value) {");
+            emitter.line("return \"\\\"\" + value.replace(\"\\\\\", \"\\\\\\\\\").replace(\"\\\"\", \"\\\\\\\"\") + \"\\\"\";");
+            emitter.line("}");
+        }
+    }
+
     /**
 	 * Generate the Java package from UML package.
 	 * 
+	 * @param model
+	 *            the snapshot of the model
 	 * @param clazz
-	 *            the UML class
-	 * @param ast
-	 *            the JDT Java AST
-	 * @param cu
-	 *            the generated Java compilation unit
-	 */
-	public void generatePackage(Classifier clazz, PrintWriter writer) {
-	    generateSimpleComment(writer, PackageComment.CONTENT_1.getValue(), PackageComment.CONTENT_2.getValue());
-	    writer.println("package "+getFullPackageName(clazz)+";");
+	 *            the index of the UML class in the snapshot
+     * @param emitter
+     *              the emitter used to write the code
+	 */
+	public void generatePackage(ModelSnapshot model, int clazz, CodeEmitter emitter) {
+	    emitter.beginJavadoc().javadocLines(PackageComment.CONTENT_1.getValue())
+	            .javadocLines(PackageComment.CONTENT_2.getValue()).endJavadoc();
+	    emitter.append("package ").append(model.getPackageName(clazz)).append(';').newLine();
 	}
 
-    protected String resolveConstantValue(Property enumLiteral) {
-        String typeName = enumLiteral.getType().getName(); //TODO should use the qualifiedName and map to the desired type
-        String value = enumLiteral.getDefaultValue() == null? nameMasker.mask(enumLiteral.getName(),NameMasker.UPPERUNDERSCORE): enumLiteral.getDefaultValue().toString();
+    private static final String[] STRING_SPECIAL_CHARS = { "\\", "\"" };
+
+    private static final String[] STRING_ESCAPES = { "\\\\", "\\\"" };
+
+    /**
+     * The Java literal of the value of an enumeration literal.
+     * 
+     * @param model
+     *              the snapshot of the model
+     * @param enumLiteral
+     *              the index of the UML attribute of the literal
+     * @param literalName
+     *              the name of the Java constant, the value if the attribute
+     *              has no default value
+     * @return the Java literal
+     */
+    protected String resolveConstantValue(ModelSnapshot model, int enumLiteral, String literalName) {
+        String typeName = getBoxedType(getJavaType(model, enumLiteral));
+        // The values are looked up by fromValue, so take the string form of
+        // the default value and not the one of its value specification
+        String defaultValue = model.getAttributeDefault(enumLiteral);
+        String value = defaultValue == null? literalName: defaultValue;
         if("Integer".equals(typeName) || "Boolean".equals(typeName)){
             return value;
         } else if("Long".equals(typeName)){
             return value+"L";
         } else {
-            return "\""+value+"\"";
+            return "\""+StringUtils.replaceEach(value, STRING_SPECIAL_CHARS, STRING_ESCAPES)+"\"";
         }
     }
 	
 	/**
 	 * Generate Enumeration constants.
 	 * 
+	 * @param model
+	 *            the snapshot of the model
 	 * @param clazz
-	 *            the UML class
-	 * @param ast
-	 *            the JDT Java AST
-	 * @param ed
-	 *            Enumeration declaration for Java JDT
-	 */
-	public void generateConstants(Classifier clazz, PrintWriter writer) {
-		// Get all properties for this enumeration class
-		Class enumerationClass = (Class) clazz;
-		EList<Property> attributes = enumerationClass.getAttributes();
-		int count=0;
-		for (Property enumLiteral : attributes) {
-		    count++;
-		    String comments=andromdaHelper.concatComments(enumLiteral.getOwnedComments());
+	 *            the index of the UML class in the snapshot
+     * @param emitter
+     *              the emitter used to write the code
+	 * @return the generated constants, in declaration order
+	 */
+	public List<Constant> generateConstants(ModelSnapshot model, int clazz, CodeEmitter emitter) {
+		int start = model.getAttributeStart(clazz);
+		int end = model.getAttributeEnd(clazz);
+		List<Constant> constants = new ArrayList<Constant>(end - start);
+		if (start == end) {
+		    // The members of an enum without constants still follow a ';'
+		    emitter.line(";");
+		}
+		for (int enumLiteral = start; enumLiteral < end; enumLiteral++) {
+		    String comments=concatComments(model, enumLiteral);
 		    if(StringUtils.isNotEmpty(comments)){
-		        generateSimpleComment(writer, comments.split("\n"));
-		    }
-            String literalName = nameMasker.mask(enumLiteral.getName(),NameMasker.UPPERUNDERSCORE);
-		    writer.format("%s(%s)",literalName,resolveConstantValue(enumLiteral));
-		    if(count < attributes.size()){
-		        writer.println(",");
-		    } else {
-                writer.println(";");
+		        emitter.javadoc(comments);
 		    }
+            String literalName = nameMasker.mask(model.getAttributeName(enumLiteral), NameMasker.Mask.UPPERUNDERSCORE);
+            String value = resolveConstantValue(model, enumLiteral, literalName);
+		    emitter.append(literalName).append('(').append(value).append(')');
+		    emitter.append(enumLiteral < end - 1 ? ',' : ';').newLine();
+		    constants.add(new Constant(literalName, value));
 		}
+		return constants;
 	}
 
-	private String getClassName(Classifier clazz) {
-		String className = clazz.getName();
-		return className;
+	/**
+	 * The Java type of the value of an attribute. The UML primitive types are
+	 * mapped by their qualified name to a Java primitive type if the attribute
+	 * is not nullable and to its wrapper type otherwise, any other type is
+	 * used by its name. The type of the enumeration literal values is taken
+	 * from the first attribute.
+	 * 
+	 * @param model
+	 *            the snapshot of the model
+	 * @param attribute
+	 *            the index of the UML attribute in the snapshot
+	 * @return the name of the value type
+	 */
+	protected String getJavaType(ModelSnapshot model, int attribute) {
+		String primitiveType = PRIMITIVE_TYPES.get(model
+				.getAttributeTypeQualifiedName(attribute));
+		if (primitiveType == null) {
+			return model.getAttributeTypeName(attribute);
+		}
+		return model.getAttributeLower(attribute) > 0 ? primitiveType
+				: BOXED_TYPES.get(primitiveType);
 	}
 
-	private String getFullPackageName(Classifier clazz) {
-		String fullPackageName = packageHelper.getFullPackageName(clazz,
+	/**
+	 * The Java package a class is generated into by
+	 * {@link #generateEnumClass(Classifier)}.
+	 * 
+	 * @param clazz
+	 *            the UML class
+	 * @return the full package name
+	 */
+	public String getJavaPackageName(Classifier clazz) {
+		return packageHelper.getFullPackageName(clazz,
 				sourceDirectoryPackageName);
-		return fullPackageName;
+	}
+
+	/**
+	 * A generated enumeration constant.
+	 */
+	protected static final class Constant {
+
+		/**
+		 * The name of the constant.
+		 */
+		protected final String name;
+
+		/**
+		 * The Java literal of its value.
+		 */
+		protected final String value;
+
+		Constant(String name, String value) {
+			this.name = name;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * The comments of an attribute joined like
+	 * {@link AndromdaHelper#concatComments(org.eclipse.emf.common.util.EList)}
+	 * joins them.
+	 */
+	private String concatComments(ModelSnapshot model, int attribute) {
+		int count = model.getAttributeCommentCount(attribute);
+		if (count == 0) {
+			return StringUtils.EMPTY;
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append(model.getAttributeComment(attribute, 0));
+		for (int i = 1; i < count; i++) {
+			sb.append('\n').append(model.getAttributeComment(attribute, i));
+		}
+		return sb.toString();
 	}
 }
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+/**
+ * How the transformer spreads the generation, formatting and writing of the
+ * classes over threads.
+ * 
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public enum ExecutionMode {
+
+	/**
+	 * Each class is generated, formatted and written in one task, the tasks
+	 * run on a work-stealing pool of {@link JavaTransformer#getParallelism()}
+	 * threads, or on the calling thread if the parallelism is 1.
+	 */
+	FORK_JOIN,
+
+	/**
+	 * Generating, formatting and writing are stages with workers of their
+	 * own, connected by bounded queues. A stage which falls behind, e.g.
+	 * writing to a slow disk, blocks the stages before it, so the number of
+	 * classes held in memory stays bounded.
+	 */
+	PIPELINE
+}
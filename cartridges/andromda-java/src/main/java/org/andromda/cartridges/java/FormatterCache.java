@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * On-disk cache of formatted source, so unchanged classes are not formatted
+ * again by later builds. Each entry is a file named by the SHA-1 hash of the
+ * unformatted source and the formatter version and profile, its content is
+ * the formatted source. Temporary files left behind by a build which was
+ * killed while writing an entry are deleted when the directory is read.
+ *
+ * <p>
+ * The cache is bounded by the total size of its entries. When an entry is
+ * added beyond the bound, the least recently used entries are removed. The
+ * last modification time of an entry is updated on every hit, so the order of
+ * use survives between builds. Failures of the cache are logged and never
+ * fail the formatting. The cache is safe for parallel callers.
+ * </p>
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class FormatterCache {
+
+	/**
+	 * The default bound of the total size of the entries: 64 MB.
+	 */
+	public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+	private static final Logger logger = Logger.getLogger(FormatterCache.class
+			.getName());
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final String ENTRY_SUFFIX = ".fmt";
+
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	private final File directory;
+
+	private final long maxBytes;
+
+	/**
+	 * The size of each entry by its key, in order of use, least recently used
+	 * first. Guarded by this.
+	 */
+	private Map<String, Long> entries;
+
+	private long totalBytes;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Create a cache bounded to {@link #DEFAULT_MAX_BYTES}.
+	 *
+	 * @param directory
+	 *            the cache directory, created when the first entry is added
+	 */
+	public FormatterCache(File directory) {
+		this(directory, DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * Create a cache.
+	 *
+	 * @param directory
+	 *            the cache directory, created when the first entry is added
+	 * @param maxBytes
+	 *            the bound of the total size of the entries
+	 */
+	public FormatterCache(File directory, long maxBytes) {
+		if (maxBytes < 0) {
+			throw new IllegalArgumentException(
+					"The size bound must not be negative: " + maxBytes);
+		}
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * The key of the formatted form of a source.
+	 *
+	 * @param formatterVersion
+	 *            the {@link JavaCodeFormatter#getVersion()} of the formatter
+	 * @param source
+	 *            the unformatted source
+	 * @return the key as a hex string
+	 */
+	public static String key(String formatterVersion, String source) {
+		MessageDigest digest = GenerationManifest.createDigest();
+		digest.update(formatterVersion.getBytes(UTF_8));
+		digest.update((byte) 0);
+		digest.update(source.getBytes(UTF_8));
+		return GenerationManifest.toHex(digest.digest());
+	}
+
+	/**
+	 * Look up the formatted source of a key.
+	 *
+	 * @param key
+	 *            the {@link #key(String, String)} of the source
+	 * @return the formatted source, null if not cached
+	 */
+	public String get(String key) {
+		File file = getFile(key);
+		synchronized (this) {
+			// Marks the entry as the most recently used
+			if (getEntries().get(key) == null) {
+				misses.incrementAndGet();
+				return null;
+			}
+		}
+		try {
+			String formatted = new String(Files.readAllBytes(file.toPath()),
+					UTF_8);
+			file.setLastModified(System.currentTimeMillis());
+			hits.incrementAndGet();
+			return formatted;
+		} catch (IOException e) {
+			// Evicted by another thread or process meanwhile
+			logger.log(Level.FINE, "Cannot read the formatter cache entry "
+					+ file, e);
+			synchronized (this) {
+				remove(key);
+			}
+			misses.incrementAndGet();
+			return null;
+		}
+	}
+
+	/**
+	 * Add the formatted source of a key, removing the least recently used
+	 * entries if the cache grows beyond its bound.
+	 *
+	 * @param key
+	 *            the {@link #key(String, String)} of the source
+	 * @param formatted
+	 *            the formatted source
+	 */
+	public void put(String key, String formatted) {
+		byte[] bytes = formatted.getBytes(UTF_8);
+		if (bytes.length > maxBytes) {
+			return;
+		}
+		File file = getFile(key);
+		File temporary = null;
+		try {
+			directory.mkdirs();
+			// Write to a temporary file first, readers never see a partial
+			// entry
+			temporary = File.createTempFile(key, TEMPORARY_SUFFIX, directory);
+			Files.write(temporary.toPath(), bytes);
+			Files.move(temporary.toPath(), file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Cannot write the formatter cache entry "
+					+ file, e);
+			if (temporary != null) {
+				temporary.delete();
+			}
+			return;
+		}
+		synchronized (this) {
+			remove(key);
+			getEntries().put(key, Long.valueOf(bytes.length));
+			totalBytes += bytes.length;
+			evict();
+		}
+	}
+
+	/**
+	 * @return the number of lookups which found the formatted source
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of lookups which did not find the formatted source
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the number of entries removed to keep the cache in its bound
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * @return the total size of the entries in bytes
+	 */
+	public synchronized long getSize() {
+		getEntries();
+		return totalBytes;
+	}
+
+	@Override
+	public String toString() {
+		return "formatter cache " + directory + ": " + hits + " hits, "
+				+ misses + " misses, " + evictions + " evictions";
+	}
+
+	private File getFile(String key) {
+		return new File(directory, key + ENTRY_SUFFIX);
+	}
+
+	/**
+	 * The entries, read from the directory on first use.
+	 */
+	private Map<String, Long> getEntries() {
+		if (entries == null) {
+			entries = new LinkedHashMap<String, Long>(256, 0.75f, true);
+			File[] files = directory.listFiles();
+			if (files != null) {
+				Arrays.sort(files, new Comparator<File>() {
+					@Override
+					public int compare(File first, File second) {
+						return Long.compare(first.lastModified(),
+								second.lastModified());
+					}
+				});
+				for (File file : files) {
+					String name = file.getName();
+					if (name.endsWith(ENTRY_SUFFIX)) {
+						entries.put(name.substring(0, name.length()
+								- ENTRY_SUFFIX.length()), file.length());
+						totalBytes += file.length();
+					} else if (name.endsWith(TEMPORARY_SUFFIX)) {
+						file.delete();
+					}
+				}
+			}
+			evict();
+		}
+		return entries;
+	}
+
+	private void remove(String key) {
+		Long size = getEntries().remove(key);
+		if (size != null) {
+			totalBytes -= size.longValue();
+		}
+	}
+
+	private void evict() {
+		Iterator<Map.Entry<String, Long>> i = entries.entrySet().iterator();
+		while (totalBytes > maxBytes && i.hasNext()) {
+			Map.Entry<String, Long> entry = i.next();
+			i.remove();
+			totalBytes -= entry.getValue().longValue();
+			getFile(entry.getKey()).delete();
+			evictions.incrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+/**
+ * How the generated code is formatted.
+ * 
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public enum FormatterMode {
+
+	/**
+	 * Format with the Eclipse JDT code formatter.
+	 */
+	JDT,
+
+	/**
+	 * Format with the {@link LightweightJavaFormatter}, which only knows the
+	 * constructs the cartridge generates and formats them like the JDT default
+	 * profile. Code it does not know, and every profile other than the
+	 * default, is formatted by JDT.
+	 */
+	LIGHTWEIGHT
+}
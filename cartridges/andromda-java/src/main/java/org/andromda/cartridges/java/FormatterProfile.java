@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.eclipse.jdt.core.JavaCore;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * The options the {@link JavaCodeFormatter} formats with: the Java compliance
+ * level of the generated code and optionally the settings of an Eclipse
+ * formatter profile, as exported from the Eclipse preferences. Profiles are
+ * immutable and equal when their options are equal.
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class FormatterProfile {
+
+	// Initialized before DEFAULT, which is fingerprinted on creation
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * The profile used when none is configured: Java 1.5 and the Eclipse
+	 * default settings.
+	 */
+	public static final FormatterProfile DEFAULT = forComplianceLevel("1.5");
+
+	private final Map<String, String> options;
+
+	private final String fingerprint;
+
+	private final boolean defaultStyle;
+
+	private FormatterProfile(Map<String, String> options,
+			boolean defaultStyle) {
+		this.options = Collections.unmodifiableMap(options);
+		this.fingerprint = computeFingerprint(options);
+		this.defaultStyle = defaultStyle;
+	}
+
+	/**
+	 * The Eclipse default settings for a compliance level.
+	 *
+	 * @param complianceLevel
+	 *            the Java version, e.g. "1.5" or "1.7"
+	 * @return the profile
+	 */
+	public static FormatterProfile forComplianceLevel(String complianceLevel) {
+		return new FormatterProfile(compliance(complianceLevel,
+				new TreeMap<String, String>()), true);
+	}
+
+	/**
+	 * The settings of an Eclipse formatter profile file for a compliance
+	 * level. The settings of the first profile in the file are used, the
+	 * compliance level overrides the compiler settings of the file.
+	 *
+	 * @param complianceLevel
+	 *            the Java version, e.g. "1.5" or "1.7"
+	 * @param settingsFile
+	 *            the exported Eclipse formatter profile
+	 * @return the profile
+	 * @throws IOException
+	 *             if the file cannot be read or is not a formatter profile
+	 */
+	public static FormatterProfile load(String complianceLevel,
+			File settingsFile) throws IOException {
+		Map<String, String> options = new TreeMap<String, String>();
+		try {
+			org.w3c.dom.Document document = DocumentBuilderFactory
+					.newInstance().newDocumentBuilder().parse(settingsFile);
+			NodeList profiles = document.getElementsByTagName("profile");
+			if (profiles.getLength() == 0) {
+				throw new IOException("No formatter profile in "
+						+ settingsFile);
+			}
+			NodeList settings = ((Element) profiles.item(0))
+					.getElementsByTagName("setting");
+			for (int i = 0; i < settings.getLength(); i++) {
+				Element setting = (Element) settings.item(i);
+				options.put(setting.getAttribute("id"),
+						setting.getAttribute("value"));
+			}
+		} catch (ParserConfigurationException e) {
+			throw new IOException("Cannot read " + settingsFile, e);
+		} catch (SAXException e) {
+			throw new IOException("Cannot read " + settingsFile, e);
+		}
+		// Whatever the file sets, it is left to JDT
+		return new FormatterProfile(compliance(complianceLevel, options),
+				false);
+	}
+
+	/**
+	 * @return the JDT options of the profile, unmodifiable
+	 */
+	public Map<String, String> getOptions() {
+		return options;
+	}
+
+	/**
+	 * Whether the code is formatted in the style of the Eclipse defaults,
+	 * which the {@link LightweightJavaFormatter} can format as well.
+	 *
+	 * @return true for the profiles of {@link #forComplianceLevel(String)},
+	 *         false for loaded profiles
+	 */
+	public boolean isDefaultStyle() {
+		return defaultStyle;
+	}
+
+	/**
+	 * A hash of the options, so that incremental runs format all classes
+	 * again when the profile changes.
+	 *
+	 * @return the fingerprint as a hex string
+	 */
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof FormatterProfile
+				&& options.equals(((FormatterProfile) obj).options);
+	}
+
+	@Override
+	public int hashCode() {
+		return options.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "FormatterProfile " + options.get(JavaCore.COMPILER_COMPLIANCE)
+				+ " " + fingerprint;
+	}
+
+	private static Map<String, String> compliance(String complianceLevel,
+			Map<String, String> options) {
+		options.put(JavaCore.COMPILER_SOURCE, complianceLevel);
+		options.put(JavaCore.COMPILER_COMPLIANCE, complianceLevel);
+		options.put(JavaCore.COMPILER_CODEGEN_TARGET_PLATFORM, complianceLevel);
+		return options;
+	}
+
+	private static String computeFingerprint(Map<String, String> options) {
+		MessageDigest digest = GenerationManifest.createDigest();
+		// The options are sorted, so equal profiles hash equally
+		for (Map.Entry<String, String> option : options.entrySet()) {
+			digest.update(option.getKey().getBytes(UTF_8));
+			digest.update((byte) '=');
+			digest.update(option.getValue().getBytes(UTF_8));
+			digest.update((byte) 0);
+		}
+		return GenerationManifest.toHex(digest.digest());
+	}
+}
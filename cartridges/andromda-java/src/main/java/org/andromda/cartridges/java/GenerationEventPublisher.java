@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.andromda.cartridges.java.event.GenerationEvent;
+import org.andromda.cartridges.java.event.GenerationEventBatch;
+
+import com.google.common.eventbus.EventBus;
+
+/**
+ * Publishes the {@link GenerationEvent}s of the generation threads to the
+ * listeners without making them wait. The events are queued and delivered in
+ * {@link GenerationEventBatch}es on a thread of their own, so slow listeners,
+ * e.g. auditing or indexing ones, do not slow the generation down.
+ * 
+ * <p>
+ * Listeners are registered with an {@link EventBus}, they receive the batches
+ * in a method annotated with
+ * {@link com.google.common.eventbus.Subscribe}. As long as no listener is
+ * registered, publishing an event does nothing.
+ * </p>
+ * 
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class GenerationEventPublisher {
+
+	/**
+	 * The default number of the events delivered in one batch at most.
+	 */
+	public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+
+	private static final Logger logger = Logger
+			.getLogger(GenerationEventPublisher.class.getName());
+
+	private final EventBus eventBus = new EventBus("andromda-generation");
+
+	private final Queue<GenerationEvent> queue = new ConcurrentLinkedQueue<GenerationEvent>();
+
+	private final AtomicInteger listeners = new AtomicInteger();
+
+	/**
+	 * Whether a delivery is scheduled or running, so that a burst of events
+	 * schedules one delivery only.
+	 */
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+
+	private final Runnable delivery = new Runnable() {
+		@Override
+		public void run() {
+			deliver();
+		}
+	};
+
+	private volatile int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+	private ExecutorService executor;
+
+	/**
+	 * Register a listener for the batches of events.
+	 * 
+	 * @param listener
+	 *            an object with a method annotated with
+	 *            {@link com.google.common.eventbus.Subscribe} taking a
+	 *            {@link GenerationEventBatch}
+	 */
+	public void register(Object listener) {
+		eventBus.register(listener);
+		listeners.incrementAndGet();
+	}
+
+	/**
+	 * Unregister a listener registered before.
+	 * 
+	 * @param listener
+	 *            the listener
+	 */
+	public void unregister(Object listener) {
+		eventBus.unregister(listener);
+		listeners.decrementAndGet();
+	}
+
+	/**
+	 * The number of the events delivered in one batch at most.
+	 * 
+	 * @return the maximum batch size
+	 */
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	/**
+	 * Set the number of the events delivered in one batch at most. Larger
+	 * batches call the listeners less often, smaller ones deliver the events
+	 * sooner.
+	 * 
+	 * @param maxBatchSize
+	 *            the maximum batch size, must be at least 1
+	 */
+	public void setMaxBatchSize(int maxBatchSize) {
+		if (maxBatchSize < 1) {
+			throw new IllegalArgumentException(
+					"Batch size must be at least 1: " + maxBatchSize);
+		}
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * Publish an event. Returns at once, the event is delivered later on the
+	 * thread of the publisher. Can be called from several threads.
+	 * 
+	 * @param event
+	 *            the event
+	 */
+	public void publish(GenerationEvent event) {
+		if (listeners.get() == 0) {
+			return;
+		}
+		queue.add(event);
+		if (scheduled.compareAndSet(false, true)) {
+			getExecutor().execute(delivery);
+		}
+	}
+
+	/**
+	 * Wait until the events published so far have been delivered, e.g. at
+	 * the end of a run.
+	 */
+	public void flush() {
+		if (queue.isEmpty() && !scheduled.get()) {
+			return;
+		}
+		try {
+			// The deliveries run one after the other on the same thread
+			getExecutor().submit(delivery).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			logger.log(Level.WARNING, "Cannot deliver the generation events",
+					e.getCause());
+		}
+	}
+
+	private synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable,
+							"andromda-generation-events");
+					// Never keeps the build from exiting
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+
+	private void deliver() {
+		while (true) {
+			List<GenerationEvent> batch = poll();
+			if (batch.isEmpty()) {
+				scheduled.set(false);
+				// An event published before the flag was cleared is still
+				// delivered by this thread
+				if (queue.isEmpty() || !scheduled.compareAndSet(false, true)) {
+					return;
+				}
+				continue;
+			}
+			eventBus.post(new GenerationEventBatch(batch));
+		}
+	}
+
+	private List<GenerationEvent> poll() {
+		int max = maxBatchSize;
+		List<GenerationEvent> batch = new ArrayList<GenerationEvent>(Math.min(
+				max, 16));
+		GenerationEvent event;
+		while (batch.size() < max && (event = queue.poll()) != null) {
+			batch.add(event);
+		}
+		return batch;
+	}
+}
@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.uml2.uml.Classifier;
+
+/**
+ * Fingerprints of the classifiers generated by the last run, stored in the
+ * target directory. A classifier whose fingerprint has not changed since the
+ * last run does not need to be generated and formatted again.
+ *
+ * <p>
+ * The manifest is keyed by the fully qualified name of the generated class,
+ * so files generated for classifiers which disappeared from the model can be
+ * found and removed.
+ * </p>
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class GenerationManifest {
+
+	/**
+	 * The name of the manifest file in the target directory.
+	 */
+	public static final String FILE_NAME = ".andromda-manifest.properties";
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final File targetDirectory;
+
+	private final Properties previous = new Properties();
+
+	private final Map<String, String> current = new ConcurrentHashMap<String, String>();
+
+	/**
+	 * Load the manifest of the last run from the target directory. An empty
+	 * manifest is returned if there was no last run.
+	 *
+	 * @param targetDirectory
+	 *            the directory the Java files are generated into
+	 * @return the manifest
+	 * @throws IOException
+	 *             if the manifest exists but cannot be read
+	 */
+	public static GenerationManifest load(File targetDirectory)
+			throws IOException {
+		GenerationManifest manifest = new GenerationManifest(targetDirectory);
+		File file = manifest.getFile();
+		if (file.isFile()) {
+			InputStream in = new FileInputStream(file);
+			try {
+				manifest.previous.load(in);
+			} finally {
+				in.close();
+			}
+		}
+		return manifest;
+	}
+
+	private GenerationManifest(File targetDirectory) {
+		this.targetDirectory = targetDirectory;
+	}
+
+	/**
+	 * Compute the fingerprint of an enumeration class. It covers everything
+	 * the generated file depends on: the names, attributes, lower bounds,
+	 * default values and comments of the classifier, the package it is
+	 * generated into, the version and options of the generator and the version
+	 * and profile of the formatter.
+	 *
+	 * @param clazz
+	 *            the UML class
+	 * @param fullPackageName
+	 *            the package the class is generated into
+	 * @param generatorVersion
+	 *            the {@link EnumClassGenerator#getVersion()} of the generator
+	 * @param formatterVersion
+	 *            the {@link JavaCodeFormatter#getVersion()} of the formatter
+	 * @return the fingerprint as a hex string
+	 */
+	public static String fingerprint(Classifier clazz, String fullPackageName,
+			String generatorVersion, String formatterVersion) {
+		ModelSnapshot.Builder builder = new ModelSnapshot.Builder();
+		int element = builder.add(clazz, fullPackageName);
+		return fingerprint(builder.build(), element, fullPackageName,
+				generatorVersion, formatterVersion);
+	}
+
+	/**
+	 * Compute the fingerprint of an enumeration class of a model snapshot,
+	 * which is the same as the one of the classifier it was extracted from.
+	 *
+	 * @param model
+	 *            the snapshot of the model
+	 * @param clazz
+	 *            the index of the UML class in the snapshot
+	 * @param fullPackageName
+	 *            the package the class is generated into
+	 * @param generatorVersion
+	 *            the {@link EnumClassGenerator#getVersion()} of the generator
+	 * @param formatterVersion
+	 *            the {@link JavaCodeFormatter#getVersion()} of the formatter
+	 * @return the fingerprint as a hex string
+	 */
+	public static String fingerprint(ModelSnapshot model, int clazz,
+			String fullPackageName, String generatorVersion,
+			String formatterVersion) {
+		MessageDigest digest = createDigest();
+		update(digest, generatorVersion);
+		update(digest, formatterVersion);
+		update(digest, fullPackageName);
+		update(digest, model.getQualifiedName(clazz));
+		update(digest, model.getName(clazz));
+		int comments = model.getCommentCount(clazz);
+		update(digest, String.valueOf(comments));
+		for (int i = 0; i < comments; i++) {
+			update(digest, model.getComment(clazz, i));
+		}
+		int start = model.getAttributeStart(clazz);
+		int end = model.getAttributeEnd(clazz);
+		update(digest, String.valueOf(end - start));
+		for (int attribute = start; attribute < end; attribute++) {
+			update(digest, model.getAttributeName(attribute));
+			update(digest, model.getAttributeTypeQualifiedName(attribute));
+			// A nullable attribute keeps the wrapper of a primitive type
+			update(digest, String.valueOf(model.getAttributeLower(attribute)));
+			update(digest, model.getAttributeDefault(attribute));
+			comments = model.getAttributeCommentCount(attribute);
+			update(digest, String.valueOf(comments));
+			for (int i = 0; i < comments; i++) {
+				update(digest, model.getAttributeComment(attribute, i));
+			}
+		}
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Check whether the class was generated by the last run from the same
+	 * fingerprint and its file is still there.
+	 *
+	 * @param fileName
+	 *            the fully qualified name of the generated class
+	 * @param fingerprint
+	 *            the fingerprint of the classifier
+	 * @return true if the class does not need to be generated again
+	 */
+	public boolean isUpToDate(String fileName, String fingerprint) {
+		return fingerprint.equals(previous.getProperty(fileName))
+				&& getJavaFile(fileName).isFile();
+	}
+
+	/**
+	 * Record the fingerprint of a class generated or kept by this run. Can be
+	 * called from several threads.
+	 *
+	 * @param fileName
+	 *            the fully qualified name of the generated class
+	 * @param fingerprint
+	 *            the fingerprint of the classifier
+	 */
+	public void record(String fileName, String fingerprint) {
+		current.put(fileName, fingerprint);
+	}
+
+	/**
+	 * Delete the files generated by the last run for classes which were not
+	 * recorded by this run.
+	 *
+	 * @return the fully qualified names of the removed classes
+	 */
+	public List<String> pruneStaleFiles() {
+		List<String> stale = new ArrayList<String>();
+		for (String fileName : previous.stringPropertyNames()) {
+			if (!current.containsKey(fileName)) {
+				File javaFile = getJavaFile(fileName);
+				if (!javaFile.isFile() || javaFile.delete()) {
+					stale.add(fileName);
+				}
+			}
+		}
+		return stale;
+	}
+
+	/**
+	 * Save the fingerprints recorded by this run as the manifest for the next
+	 * run.
+	 *
+	 * @throws IOException
+	 *             if the manifest cannot be written
+	 */
+	public void save() throws IOException {
+		Properties properties = new Properties();
+		properties.putAll(current);
+		targetDirectory.mkdirs();
+		OutputStream out = new FileOutputStream(getFile());
+		try {
+			properties.store(out, "Generated by KissMDA - Andromda Java Cartridge");
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * The Java file generated for a class.
+	 *
+	 * @param fileName
+	 *            the fully qualified name of the generated class
+	 * @return the Java file in the target directory
+	 */
+	public File getJavaFile(String fileName) {
+		int index = fileName.lastIndexOf('.');
+		return ChangedJavaFileWriter.getJavaFile(targetDirectory,
+				fileName.substring(0, Math.max(index, 0)),
+				fileName.substring(index + 1));
+	}
+
+	private File getFile() {
+		return new File(targetDirectory, FILE_NAME);
+	}
+
+	static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void update(MessageDigest digest, String value) {
+		// Mark whether there is a value, a missing default generates other
+		// code than an empty one
+		if (value == null) {
+			digest.update((byte) 0);
+		} else {
+			digest.update((byte) 1);
+			digest.update(value.getBytes(UTF_8));
+		}
+		// Separate the values so that "ab", "c" differs from "a", "bc"
+		digest.update((byte) 0);
+	}
+
+	static String toHex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+			hex.append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+}
@@ -0,0 +1,311 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.andromda.cartridges.java.GenerationReport.Phase;
+
+/**
+ * Runs items through a sequence of stages, each with workers of its own. The
+ * stages are connected by bounded queues: a worker putting an item into a
+ * full queue waits until the next stage took one, so a slow stage throttles
+ * the ones before it and the number of items in flight stays bounded.
+ *
+ * <p>
+ * The first failure of any stage stops all workers and is thrown by
+ * {@link #run(List, GenerationReport)}. The depth of the queue in front of
+ * each stage and its throughput are recorded in the report.
+ * </p>
+ *
+ * @param <T>
+ *            the type of the items, each stage updates the item it is given
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class GenerationPipeline<T> {
+
+	/**
+	 * The work of one stage on one item.
+	 */
+	interface Stage<T> {
+
+		void process(T item) throws IOException;
+	}
+
+	/**
+	 * Marks the end of the items in a queue, one per worker of the next
+	 * stage.
+	 */
+	private static final Object END = new Object();
+
+	private final int queueCapacity;
+
+	private final List<StageRunner> stages = new ArrayList<StageRunner>();
+
+	private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+	private ExecutorService executor;
+
+	/**
+	 * Whether all workers were handed to the executor, until then a failure
+	 * must not shut it down. Guarded by this pipeline.
+	 */
+	private boolean submitted;
+
+	/**
+	 * Create an empty pipeline.
+	 *
+	 * @param queueCapacity
+	 *            the number of items the queue in front of a stage holds at
+	 *            most
+	 */
+	GenerationPipeline(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Append a stage.
+	 *
+	 * @param phase
+	 *            the phase the stage is reported as
+	 * @param workers
+	 *            the number of worker threads of the stage
+	 * @param stage
+	 *            the work of the stage
+	 * @return this pipeline
+	 */
+	GenerationPipeline<T> stage(Phase phase, int workers, Stage<T> stage) {
+		stages.add(new StageRunner(phase, workers, stage));
+		return this;
+	}
+
+	/**
+	 * Run all items through the stages and wait until the last stage is
+	 * done with them.
+	 *
+	 * @param items
+	 *            the items, taken by the first stage in this order
+	 * @param report
+	 *            the report the statistics of the stages are recorded in
+	 * @throws IOException
+	 *             the first failure of a stage
+	 */
+	void run(List<T> items, GenerationReport report) throws IOException {
+		AtomicInteger next = new AtomicInteger();
+		int threads = 0;
+		for (int i = 0; i < stages.size(); i++) {
+			StageRunner stage = stages.get(i);
+			stage.next = i + 1 < stages.size() ? stages.get(i + 1) : null;
+			if (i > 0) {
+				stage.input = new ArrayBlockingQueue<Object>(queueCapacity);
+			}
+			threads += stage.workers;
+		}
+		executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				return new Thread(runnable, "andromda-pipeline-"
+						+ count.incrementAndGet());
+			}
+		});
+		long start = System.nanoTime();
+		try {
+			for (StageRunner stage : stages) {
+				for (int i = 0; i < stage.workers; i++) {
+					executor.execute(stage.worker(items, next));
+				}
+			}
+			synchronized (this) {
+				submitted = true;
+				if (failure.get() != null) {
+					// A worker failed while the others were submitted
+					executor.shutdownNow();
+				}
+			}
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Generation interrupted");
+		}
+		for (StageRunner stage : stages) {
+			report.recordStage(stage.phase, stage.workers,
+					stage.items.get(), stage.end.get() - start,
+					stage.maxQueueDepth.get(), stage.averageQueueDepth());
+		}
+		Throwable thrown = failure.get();
+		if (thrown instanceof IOException) {
+			throw (IOException) thrown;
+		} else if (thrown instanceof RuntimeException) {
+			throw (RuntimeException) thrown;
+		} else if (thrown instanceof Error) {
+			throw (Error) thrown;
+		}
+	}
+
+	private void fail(Throwable thrown) {
+		if (failure.compareAndSet(null, thrown)) {
+			synchronized (this) {
+				// Wake up the workers waiting for a queue, once all of them
+				// were submitted
+				if (submitted) {
+					executor.shutdownNow();
+				}
+			}
+		}
+	}
+
+	/**
+	 * One stage with its input queue and its statistics.
+	 */
+	private final class StageRunner {
+
+		private final Phase phase;
+
+		private final int workers;
+
+		private final Stage<T> stage;
+
+		/**
+		 * The queue the stage takes its items from, null for the first stage
+		 * which takes them from the list.
+		 */
+		private BlockingQueue<Object> input;
+
+		private StageRunner next;
+
+		private final AtomicInteger running = new AtomicInteger();
+
+		private final AtomicLong items = new AtomicLong();
+
+		private final AtomicLong end = new AtomicLong();
+
+		private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+		private final AtomicLong queueDepths = new AtomicLong();
+
+		private final AtomicLong puts = new AtomicLong();
+
+		private StageRunner(Phase phase, int workers, Stage<T> stage) {
+			if (workers < 1) {
+				throw new IllegalArgumentException(
+						"Workers must be at least 1: " + workers);
+			}
+			this.phase = phase;
+			this.workers = workers;
+			this.stage = stage;
+			running.set(workers);
+		}
+
+		private Runnable worker(final List<T> list, final AtomicInteger next) {
+			return new Runnable() {
+				@Override
+				public void run() {
+					try {
+						work(list, next);
+					} catch (InterruptedException e) {
+						// Stopped by a failure of another stage
+					} catch (Throwable thrown) {
+						fail(thrown);
+					} finally {
+						finish();
+					}
+				}
+			};
+		}
+
+		@SuppressWarnings("unchecked")
+		private void work(List<T> list, AtomicInteger index)
+				throws IOException, InterruptedException {
+			while (failure.get() == null) {
+				T item;
+				if (input == null) {
+					int i = index.getAndIncrement();
+					if (i >= list.size()) {
+						return;
+					}
+					item = list.get(i);
+				} else {
+					Object taken = input.take();
+					if (taken == END) {
+						return;
+					}
+					item = (T) taken;
+				}
+				stage.process(item);
+				items.incrementAndGet();
+				if (next != null) {
+					next.put(item);
+				}
+			}
+		}
+
+		private void put(Object item) throws InterruptedException {
+			input.put(item);
+			int depth = input.size();
+			queueDepths.addAndGet(depth);
+			puts.incrementAndGet();
+			int max = maxQueueDepth.get();
+			while (depth > max && !maxQueueDepth.compareAndSet(max, depth)) {
+				max = maxQueueDepth.get();
+			}
+		}
+
+		private void finish() {
+			if (running.decrementAndGet() > 0) {
+				return;
+			}
+			end.set(System.nanoTime());
+			if (next == null || failure.get() != null) {
+				return;
+			}
+			// The last worker tells every worker of the next stage to stop
+			try {
+				for (int i = 0; i < next.workers; i++) {
+					next.input.put(END);
+				}
+			} catch (InterruptedException e) {
+				// Stopped by a failure of another stage
+			}
+		}
+
+		private double averageQueueDepth() {
+			long count = puts.get();
+			return count == 0 ? 0 : (double) queueDepths.get() / count;
+		}
+	}
+}
@@ -0,0 +1,499 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timings and counters of one transformation run: wall and CPU time per
+ * phase, what was found and generated, and the slowest classes. The report is
+ * written as JSON to the target directory, so runs can be compared over time.
+ *
+ * <p>
+ * When the classes are generated in parallel, the time of the generate,
+ * format and write phases is summed over all worker threads and can exceed
+ * the wall time of the run.
+ * </p>
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class GenerationReport {
+
+	/**
+	 * The name of the report file in the target directory.
+	 */
+	public static final String FILE_NAME = ".andromda-report.json";
+
+	/**
+	 * The number of slowest classes listed in the report.
+	 */
+	public static final int SLOWEST_CLASSES = 10;
+
+	/**
+	 * The phases of a transformation run.
+	 */
+	public enum Phase {
+		/** Loading the model and its profiles. */
+		LOAD,
+		/** Finding the stereotyped elements. */
+		DISCOVERY,
+		/** Fingerprinting the classes to find the changed ones. */
+		FINGERPRINT,
+		/** Generating the source of the classes. */
+		GENERATE,
+		/** Formatting the generated source. */
+		FORMAT,
+		/** Writing the Java files. */
+		WRITE
+	}
+
+	private static final ThreadMXBean threadMXBean = ManagementFactory
+			.getThreadMXBean();
+
+	private static final Comparator<Map.Entry<String, Long>> FASTEST_FIRST = new Comparator<Map.Entry<String, Long>>() {
+		@Override
+		public int compare(Map.Entry<String, Long> first,
+				Map.Entry<String, Long> second) {
+			return first.getValue().compareTo(second.getValue());
+		}
+	};
+
+	private final long start = System.nanoTime();
+
+	private long wallNanos;
+
+	private final Map<Phase, AtomicLong> phaseWallNanos = new EnumMap<Phase, AtomicLong>(
+			Phase.class);
+
+	private final Map<Phase, AtomicLong> phaseCpuNanos = new EnumMap<Phase, AtomicLong>(
+			Phase.class);
+
+	private final AtomicLong elementsVisited = new AtomicLong();
+
+	private final AtomicLong stereotypesMatched = new AtomicLong();
+
+	private final AtomicLong classesGenerated = new AtomicLong();
+
+	private final AtomicLong charsFormatted = new AtomicLong();
+
+	/**
+	 * The slowest classes so far, the fastest of them at the head. Guarded by
+	 * itself.
+	 */
+	private final Queue<Map.Entry<String, Long>> slowestClasses = new PriorityQueue<Map.Entry<String, Long>>(
+			SLOWEST_CLASSES, FASTEST_FIRST);
+
+	private final GenerationStatistics statistics = new GenerationStatistics();
+
+	/**
+	 * The stages of the pipeline by their phase, empty unless the classes
+	 * were generated in {@link ExecutionMode#PIPELINE} mode.
+	 */
+	private final Map<Phase, Stage> stages = Collections
+			.synchronizedMap(new EnumMap<Phase, Stage>(Phase.class));
+
+	/**
+	 * Create an empty report, the wall time of the run starts now.
+	 */
+	public GenerationReport() {
+		for (Phase phase : Phase.values()) {
+			phaseWallNanos.put(phase, new AtomicLong());
+			phaseCpuNanos.put(phase, new AtomicLong());
+		}
+	}
+
+	/**
+	 * The CPU time of the current thread, to be passed to
+	 * {@link #record(Phase, long, long)} later.
+	 *
+	 * @return the CPU time in nanoseconds, 0 if not supported by the JVM
+	 */
+	public static long currentThreadCpuTime() {
+		return threadMXBean.isCurrentThreadCpuTimeSupported() ? threadMXBean
+				.getCurrentThreadCpuTime() : 0;
+	}
+
+	/**
+	 * Add the time spent in a phase since the given start. Can be called from
+	 * several threads.
+	 *
+	 * @param phase
+	 *            the phase
+	 * @param wallStart
+	 *            the {@link System#nanoTime()} at the start of the phase
+	 * @param cpuStart
+	 *            the {@link #currentThreadCpuTime()} at the start of the
+	 *            phase
+	 * @return the wall time spent in nanoseconds
+	 */
+	public long record(Phase phase, long wallStart, long cpuStart) {
+		long wall = System.nanoTime() - wallStart;
+		phaseWallNanos.get(phase).addAndGet(wall);
+		phaseCpuNanos.get(phase).addAndGet(currentThreadCpuTime() - cpuStart);
+		return wall;
+	}
+
+	/**
+	 * @param phase
+	 *            the phase
+	 * @return the wall time spent in the phase, in nanoseconds
+	 */
+	public long getWallNanos(Phase phase) {
+		return phaseWallNanos.get(phase).get();
+	}
+
+	/**
+	 * @param phase
+	 *            the phase
+	 * @return the CPU time spent in the phase, in nanoseconds
+	 */
+	public long getCpuNanos(Phase phase) {
+		return phaseCpuNanos.get(phase).get();
+	}
+
+	/**
+	 * @return the number of model elements looked at to find the stereotyped
+	 *         ones
+	 */
+	public long getElementsVisited() {
+		return elementsVisited.get();
+	}
+
+	/**
+	 * @return the number of stereotype applications matched
+	 */
+	public long getStereotypesMatched() {
+		return stereotypesMatched.get();
+	}
+
+	/**
+	 * @return the number of classes generated
+	 */
+	public long getClassesGenerated() {
+		return classesGenerated.get();
+	}
+
+	/**
+	 * The size of the generated source passed to the formatter, counted in
+	 * characters rather than bytes, so no source has to be encoded for it.
+	 *
+	 * @return the number of characters passed to the formatter
+	 */
+	public long getCharsFormatted() {
+		return charsFormatted.get();
+	}
+
+	/**
+	 * @return the counts of written, unchanged, skipped and removed files
+	 */
+	public GenerationStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * The statistics of a stage of the pipeline.
+	 *
+	 * @param phase
+	 *            the phase of the stage
+	 * @return the statistics, null unless the classes were generated in
+	 *         {@link ExecutionMode#PIPELINE} mode
+	 */
+	public Stage getStage(Phase phase) {
+		return stages.get(phase);
+	}
+
+	/**
+	 * The slowest classes, by the time spent generating, formatting and
+	 * writing them.
+	 *
+	 * @return at most {@link #SLOWEST_CLASSES} class names with their time in
+	 *         nanoseconds, slowest first
+	 */
+	public List<Map.Entry<String, Long>> getSlowestClasses() {
+		List<Map.Entry<String, Long>> timings;
+		synchronized (slowestClasses) {
+			timings = new ArrayList<Map.Entry<String, Long>>(slowestClasses);
+		}
+		Collections.sort(timings, Collections.reverseOrder(FASTEST_FIRST));
+		return timings;
+	}
+
+	void addElementsVisited(long count) {
+		elementsVisited.addAndGet(count);
+	}
+
+	void addStereotypesMatched(long count) {
+		stereotypesMatched.addAndGet(count);
+	}
+
+	void addClassGenerated(String name, long nanos) {
+		classesGenerated.incrementAndGet();
+		// Only the slowest classes are kept, the others are not remembered
+		synchronized (slowestClasses) {
+			if (slowestClasses.size() == SLOWEST_CLASSES) {
+				if (nanos <= slowestClasses.peek().getValue()) {
+					return;
+				}
+				slowestClasses.poll();
+			}
+			slowestClasses.add(new AbstractMap.SimpleImmutableEntry<String, Long>(
+					name, nanos));
+		}
+	}
+
+	void addCharsFormatted(long count) {
+		charsFormatted.addAndGet(count);
+	}
+
+	void recordStage(Phase phase, int workers, long items, long wallNanos,
+			int maxQueueDepth, double averageQueueDepth) {
+		stages.put(phase, new Stage(workers, items, wallNanos, maxQueueDepth,
+				averageQueueDepth));
+	}
+
+	/**
+	 * End the run, its wall time stops now.
+	 */
+	void finish() {
+		wallNanos = System.nanoTime() - start;
+	}
+
+	/**
+	 * Write the report as JSON into the target directory.
+	 *
+	 * @param targetDirectory
+	 *            the directory the Java files are generated into
+	 * @param sourceModel
+	 *            the model file of the run
+	 * @throws IOException
+	 *             if the report cannot be written
+	 */
+	public void write(File targetDirectory, String sourceModel)
+			throws IOException {
+		targetDirectory.mkdirs();
+		Writer writer = new OutputStreamWriter(new FileOutputStream(new File(
+				targetDirectory, FILE_NAME)), "UTF-8");
+		try {
+			writer.write(toJson(sourceModel));
+		} finally {
+			writer.close();
+		}
+	}
+
+	String toJson(String sourceModel) {
+		StringBuilder json = new StringBuilder(1024);
+		json.append("{\n  \"sourceModel\": ");
+		appendString(json, sourceModel);
+		json.append(",\n  \"wallMillis\": ").append(millis(wallNanos));
+		json.append(",\n  \"phases\": {");
+		String separator = "\n";
+		for (Phase phase : Phase.values()) {
+			json.append(separator).append("    ");
+			appendString(json, phase.name().toLowerCase(Locale.ENGLISH));
+			json.append(": { \"wallMillis\": ")
+					.append(millis(getWallNanos(phase)))
+					.append(", \"cpuMillis\": ")
+					.append(millis(getCpuNanos(phase))).append(" }");
+			separator = ",\n";
+		}
+		json.append("\n  },\n  \"counters\": {");
+		json.append("\n    \"elementsVisited\": ").append(elementsVisited);
+		json.append(",\n    \"stereotypesMatched\": ").append(
+				stereotypesMatched);
+		json.append(",\n    \"classesGenerated\": ").append(classesGenerated);
+		json.append(",\n    \"charsFormatted\": ").append(charsFormatted);
+		json.append(",\n    \"filesWritten\": ").append(
+				statistics.getWritten());
+		json.append(",\n    \"filesUnchanged\": ").append(
+				statistics.getUnchanged());
+		json.append(",\n    \"classesSkipped\": ").append(
+				statistics.getSkipped());
+		json.append(",\n    \"filesRemoved\": ").append(
+				statistics.getRemoved());
+		if (!stages.isEmpty()) {
+			json.append("\n  },\n  \"pipeline\": {");
+			separator = "\n";
+			for (Phase phase : Phase.values()) {
+				Stage stage = stages.get(phase);
+				if (stage == null) {
+					continue;
+				}
+				json.append(separator).append("    ");
+				appendString(json, phase.name().toLowerCase(Locale.ENGLISH));
+				json.append(": { \"workers\": ").append(stage.workers)
+						.append(", \"items\": ").append(stage.items)
+						.append(", \"itemsPerSecond\": ")
+						.append(format(stage.getItemsPerSecond()))
+						.append(", \"maxQueueDepth\": ")
+						.append(stage.maxQueueDepth)
+						.append(", \"averageQueueDepth\": ")
+						.append(format(stage.averageQueueDepth)).append(" }");
+				separator = ",\n";
+			}
+		}
+		json.append("\n  },\n  \"slowestClasses\": [");
+		separator = "\n";
+		for (Map.Entry<String, Long> timing : getSlowestClasses()) {
+			json.append(separator).append("    { \"name\": ");
+			appendString(json, timing.getKey());
+			json.append(", \"millis\": ").append(millis(timing.getValue()))
+					.append(" }");
+			separator = ",\n";
+		}
+		json.append("\n  ]\n}\n");
+		return json.toString();
+	}
+
+	/**
+	 * One line summary of the run for the log.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder summary = new StringBuilder(256);
+		summary.append(millis(wallNanos)).append(" ms");
+		for (Phase phase : Phase.values()) {
+			summary.append(", ")
+					.append(phase.name().toLowerCase(Locale.ENGLISH))
+					.append(' ').append(millis(getWallNanos(phase)))
+					.append(" ms");
+		}
+		summary.append("; ").append(elementsVisited)
+				.append(" elements visited, ").append(stereotypesMatched)
+				.append(" stereotypes matched, ").append(classesGenerated)
+				.append(" classes generated, ").append(charsFormatted)
+				.append(" chars formatted, ").append(statistics);
+		return summary.toString();
+	}
+
+	private static String millis(long nanos) {
+		return format(nanos / 1000000.0);
+	}
+
+	private static String format(double value) {
+		return String.format(Locale.ENGLISH, "%.3f", value);
+	}
+
+	private static void appendString(StringBuilder json, String value) {
+		if (value == null) {
+			json.append("null");
+			return;
+		}
+		json.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				json.append('\\').append(c);
+			} else if (c < ' ') {
+				json.append(String.format("\\u%04x", (int) c));
+			} else {
+				json.append(c);
+			}
+		}
+		json.append('"');
+	}
+
+	/**
+	 * The statistics of one stage of the pipeline.
+	 */
+	public static final class Stage {
+
+		private final int workers;
+
+		private final long items;
+
+		private final long wallNanos;
+
+		private final int maxQueueDepth;
+
+		private final double averageQueueDepth;
+
+		Stage(int workers, long items, long wallNanos, int maxQueueDepth,
+				double averageQueueDepth) {
+			this.workers = workers;
+			this.items = items;
+			this.wallNanos = wallNanos;
+			this.maxQueueDepth = maxQueueDepth;
+			this.averageQueueDepth = averageQueueDepth;
+		}
+
+		/**
+		 * @return the number of worker threads of the stage
+		 */
+		public int getWorkers() {
+			return workers;
+		}
+
+		/**
+		 * @return the number of classes the stage processed
+		 */
+		public long getItems() {
+			return items;
+		}
+
+		/**
+		 * @return the time from the start of the pipeline until the stage
+		 *         was done, in nanoseconds
+		 */
+		public long getWallNanos() {
+			return wallNanos;
+		}
+
+		/**
+		 * @return the number of classes the stage processed per second
+		 */
+		public double getItemsPerSecond() {
+			return wallNanos == 0 ? 0 : items * 1000000000.0 / wallNanos;
+		}
+
+		/**
+		 * @return the most classes waiting in the queue in front of the
+		 *         stage, 0 for the first stage
+		 */
+		public int getMaxQueueDepth() {
+			return maxQueueDepth;
+		}
+
+		/**
+		 * @return the average number of classes waiting in the queue in
+		 *         front of the stage, sampled whenever a class was queued
+		 */
+		public double getAverageQueueDepth() {
+			return averageQueueDepth;
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts what a transformation run did with the classes it found. Can be
+ * updated from several threads.
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class GenerationStatistics {
+
+	private final AtomicInteger written = new AtomicInteger();
+
+	private final AtomicInteger unchanged = new AtomicInteger();
+
+	private final AtomicInteger skipped = new AtomicInteger();
+
+	private final AtomicInteger removed = new AtomicInteger();
+
+	/**
+	 * @return the number of files written
+	 */
+	public int getWritten() {
+		return written.get();
+	}
+
+	/**
+	 * @return the number of files generated with the same content as before
+	 *         and therefore not written
+	 */
+	public int getUnchanged() {
+		return unchanged.get();
+	}
+
+	/**
+	 * @return the number of classes not generated at all because their
+	 *         fingerprint did not change
+	 */
+	public int getSkipped() {
+		return skipped.get();
+	}
+
+	/**
+	 * @return the number of stale files removed
+	 */
+	public int getRemoved() {
+		return removed.get();
+	}
+
+	void incrementWritten() {
+		written.incrementAndGet();
+	}
+
+	void incrementUnchanged() {
+		unchanged.incrementAndGet();
+	}
+
+	void incrementSkipped() {
+		skipped.incrementAndGet();
+	}
+
+	void addRemoved(int count) {
+		removed.addAndGet(count);
+	}
+
+	@Override
+	public String toString() {
+		return written + " written, " + unchanged + " unchanged, " + skipped
+				+ " skipped, " + removed + " removed";
+	}
+}
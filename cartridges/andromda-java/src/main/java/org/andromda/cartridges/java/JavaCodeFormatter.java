@@ -18,13 +18,16 @@
  */
 package org.andromda.cartridges.java;
 
-import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.apache.commons.lang3.exception.ExceptionUtils;
-import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.ToolFactory;
 import org.eclipse.jdt.core.formatter.CodeFormatter;
 import org.eclipse.jface.text.BadLocationException;
@@ -37,13 +40,22 @@ import org.eclipse.text.edits.TextEdit;
  * Java Code Formatter. Part of this code is taken from Maven Java Formatter
  * Plugin: https://code.google.com/p/maven-java-formatter-plugin.
  * 
+ * <p>
+ * The formatter is safe for parallel callers. The JDT formatters are built
+ * once per {@link FormatterProfile} and reused.
+ * </p>
+ * 
  * @author Lofi Dewanto
  * @version 1.1.0
  * @since 1.1.0
  */
 public class JavaCodeFormatter {
 
-	private static final String JAVA_VERSION = "1.5";
+	/**
+	 * The version of the formatting. Change it whenever the formatting options
+	 * change, so that incremental runs format all classes again.
+	 */
+	public static final String VERSION = "1.1.0";
 
 	private static final Logger logger = Logger
 			.getLogger(JavaCodeFormatter.class.getName());
@@ -60,19 +72,96 @@ public class JavaCodeFormatter {
 
 	private final String lineEnding = LINE_ENDING_AUTO;
 
-	private CodeFormatter codeFormatter;
+	private final ConcurrentMap<FormatterProfile, Pool> pools = new ConcurrentHashMap<FormatterProfile, Pool>();
+
+	private volatile FormatterProfile profile = FormatterProfile.DEFAULT;
+
+	private volatile FormatterCache cache;
+
+	private volatile FormatterMode mode = FormatterMode.JDT;
+
+	private final LightweightJavaFormatter lightweightFormatter = new LightweightJavaFormatter();
+
+	/**
+	 * The profile the code is formatted with.
+	 * 
+	 * @return the formatter profile
+	 */
+	public FormatterProfile getProfile() {
+		return profile;
+	}
+
+	/**
+	 * Set the profile the code is formatted with. Formatters already built for
+	 * a profile are kept, switching back to it does not build them again.
+	 * 
+	 * @param profile
+	 *            the formatter profile
+	 */
+	public void setProfile(FormatterProfile profile) {
+		this.profile = profile;
+	}
+
+	/**
+	 * How the code is formatted, with JDT unless configured.
+	 * 
+	 * @return the formatter mode
+	 */
+	public FormatterMode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Set how the code is formatted. The lightweight mode formats the code of
+	 * the cartridge like JDT does, code it does not know is still formatted
+	 * by JDT.
+	 * 
+	 * @param mode
+	 *            the formatter mode
+	 */
+	public void setMode(FormatterMode mode) {
+		this.mode = mode;
+	}
+
+	/**
+	 * The cache of formatted source, null if every source is formatted.
+	 * 
+	 * @return the formatter cache
+	 */
+	public FormatterCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * Set the cache of formatted source. Sources found in the cache are not
+	 * formatted again.
+	 * 
+	 * @param cache
+	 *            the formatter cache, null to format every source
+	 */
+	public void setCache(FormatterCache cache) {
+		this.cache = cache;
+	}
 
-	private void createCodeFormatter() {
-		Map<String, String> options = getFormattingOptions();
-		codeFormatter = ToolFactory.createCodeFormatter(options);
+	/**
+	 * The version of the formatting including the mode and the profile, to
+	 * fingerprint the generated classes with.
+	 * 
+	 * @return the version, the mode and the fingerprint of the profile
+	 */
+	public String getVersion() {
+		return getVersion(mode, profile);
 	}
 
-	private Map<String, String> getFormattingOptions() {
-		Map<String, String> options = new HashMap<String, String>();
-		options.put(JavaCore.COMPILER_SOURCE, JAVA_VERSION);
-		options.put(JavaCore.COMPILER_COMPLIANCE, JAVA_VERSION);
-		options.put(JavaCore.COMPILER_CODEGEN_TARGET_PLATFORM, JAVA_VERSION);
-		return options;
+	/**
+	 * The mode is part of the version, so that a difference between the
+	 * lightweight formatter and JDT never survives in the generated files or
+	 * the cache once the mode is switched.
+	 */
+	private static String getVersion(FormatterMode mode,
+			FormatterProfile profile) {
+		return VERSION + "/" + mode.name().toLowerCase(Locale.ENGLISH) + "/"
+				+ profile.getFingerprint();
 	}
 
 	/**
@@ -83,12 +172,50 @@ public class JavaCodeFormatter {
 	 * @return formatted code
 	 */
 	public String format(String compilationUnit) {
-		createCodeFormatter();
+		FormatterCache cache = this.cache;
+		if (cache == null) {
+			return format(compilationUnit, mode, profile);
+		}
+		// Read the mode and profile once, the key and the formatting must
+		// agree
+		FormatterMode mode = this.mode;
+		FormatterProfile profile = this.profile;
+		String key = FormatterCache.key(getVersion(mode, profile),
+				compilationUnit);
+		String formattedCode = cache.get(key);
+		if (formattedCode == null) {
+			formattedCode = format(compilationUnit, mode, profile);
+			cache.put(key, formattedCode);
+		}
+		return formattedCode;
+	}
+
+	private String format(String compilationUnit, FormatterMode mode,
+			FormatterProfile profile) {
 		String lineSeparator = getLineEnding(compilationUnit);
+		if (mode == FormatterMode.LIGHTWEIGHT && profile.isDefaultStyle()) {
+			// Without a line separator JDT uses the one of the platform
+			String formattedCode = lightweightFormatter.format(
+					compilationUnit,
+					lineSeparator == null ? System
+							.getProperty("line.separator") : lineSeparator);
+			if (formattedCode != null) {
+				return formattedCode;
+			}
+			logger.log(Level.FINE,
+					"Formatted with JDT, unknown to the lightweight formatter");
+		}
 
-		TextEdit te = codeFormatter.format(CodeFormatter.K_COMPILATION_UNIT
-				+ CodeFormatter.F_INCLUDE_COMMENTS, compilationUnit, 0,
-				compilationUnit.length(), 0, lineSeparator);
+		Pool pool = getPool(profile);
+		CodeFormatter codeFormatter = pool.borrow();
+		TextEdit te;
+		try {
+			te = codeFormatter.format(CodeFormatter.K_COMPILATION_UNIT
+					+ CodeFormatter.F_INCLUDE_COMMENTS, compilationUnit, 0,
+					compilationUnit.length(), 0, lineSeparator);
+		} finally {
+			pool.release(codeFormatter);
+		}
 		IDocument doc = new Document(compilationUnit);
 		try {
 			te.apply(doc);
@@ -101,6 +228,18 @@ public class JavaCodeFormatter {
 		return formattedCode;
 	}
 
+	private Pool getPool(FormatterProfile profile) {
+		Pool pool = pools.get(profile);
+		if (pool == null) {
+			Pool created = new Pool(profile.getOptions());
+			pool = pools.putIfAbsent(profile, created);
+			if (pool == null) {
+				pool = created;
+			}
+		}
+		return pool;
+	}
+
 	/**
 	 * Returns the lineEnding parameter as characters when the value is known
 	 * (LF, CRLF, CR) or can be determined from the file text (KEEP). Otherwise
@@ -156,4 +295,35 @@ public class JavaCodeFormatter {
 		}
 		return null;
 	}
+
+	/**
+	 * The formatters of one profile. A JDT code formatter keeps the state of
+	 * the current formatting in its fields, each formatter is used by one
+	 * thread at a time. Idle formatters are kept up to the number of
+	 * processors, the formatting never waits for a formatter.
+	 */
+	private static final class Pool {
+
+		private final Map<String, String> options;
+
+		private final BlockingQueue<CodeFormatter> idle = new ArrayBlockingQueue<CodeFormatter>(
+				Runtime.getRuntime().availableProcessors());
+
+		private Pool(Map<String, String> options) {
+			this.options = options;
+		}
+
+		private CodeFormatter borrow() {
+			CodeFormatter codeFormatter = idle.poll();
+			if (codeFormatter == null) {
+				codeFormatter = ToolFactory.createCodeFormatter(options);
+			}
+			return codeFormatter;
+		}
+
+		private void release(CodeFormatter codeFormatter) {
+			// Dropped when the pool is full
+			idle.offer(codeFormatter);
+		}
+	}
 }
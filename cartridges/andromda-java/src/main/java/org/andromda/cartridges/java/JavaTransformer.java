@@ -18,19 +18,36 @@
  */
 package org.andromda.cartridges.java;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.inject.Inject;
 
-import org.eclipse.emf.common.util.EList;
+import org.andromda.cartridges.java.GenerationReport.Phase;
+import org.andromda.cartridges.java.event.GenerationEvent;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.uml2.uml.Class;
 import org.eclipse.uml2.uml.Classifier;
 import org.eclipse.uml2.uml.Element;
-import org.eclipse.uml2.uml.Stereotype;
 
 import de.crowdcode.kissmda.core.Context;
 import de.crowdcode.kissmda.core.Transformer;
@@ -60,6 +77,12 @@ public class JavaTransformer implements Transformer {
 
 	private static final String STEREOTYPE_SOURCEDIRECTORY = "SourceDirectory";
 
+	/**
+	 * The default number of classes the queue in front of a pipeline stage
+	 * holds at most.
+	 */
+	public static final int DEFAULT_PIPELINE_QUEUE_CAPACITY = 64;
+
 	private String sourceDirectoryPackageName;
 
 	@Inject
@@ -68,14 +91,431 @@ public class JavaTransformer implements Transformer {
 	@Inject
 	private JavaFileWriter javaFileWriter;
 
+	@Inject
+	private ChangedJavaFileWriter changedJavaFileWriter;
+
+	@Inject
+	private StereotypeFinder stereotypeFinder;
+
+	@Inject
+	private ModelLoader modelLoader;
+
 	@Inject
 	private EnumClassGenerator enumClassGenerator;
 
     @Inject
     private JavaCodeFormatter javaCodeFormatter;
 
+	@Inject
+	private GenerationEventPublisher eventPublisher;
+
     private Context context;
 
+	private GenerationManifest manifest;
+
+	private GenerationReport report = new GenerationReport();
+
+	private GenerationStatistics statistics = report.getStatistics();
+
+	private int parallelism = 1;
+
+	private ExecutionMode executionMode = ExecutionMode.FORK_JOIN;
+
+	private final Map<Phase, Integer> pipelineWorkers = new EnumMap<Phase, Integer>(
+			Phase.class);
+
+	private int pipelineQueueCapacity = DEFAULT_PIPELINE_QUEUE_CAPACITY;
+
+	private boolean incremental = true;
+
+	private boolean writeIfChanged = true;
+
+	private ElementDiscovery elementDiscovery = ElementDiscovery.MODEL_WALK;
+
+	private String enumerationStereotype = STEREOTYPE_ENUMERATION;
+
+	private String sourceDirectoryStereotype = STEREOTYPE_SOURCEDIRECTORY;
+
+	private File modelCacheDirectory;
+
+	private ModelSnapshot snapshot;
+
+	/**
+	 * Create a transformer, its collaborators are injected.
+	 */
+	public JavaTransformer() {
+		// Formatting takes most of the time
+		pipelineWorkers.put(Phase.GENERATE, 1);
+		pipelineWorkers.put(Phase.FORMAT, Runtime.getRuntime()
+				.availableProcessors());
+		pipelineWorkers.put(Phase.WRITE, 1);
+	}
+
+	/**
+	 * The number of worker threads used to generate, format and write the
+	 * enumeration classes. A value of 1 (the default) keeps the generation on
+	 * the calling thread.
+	 * 
+	 * @return the parallelism level
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Set the number of worker threads used to generate, format and write the
+	 * enumeration classes. The model is always collected sequentially, only
+	 * the per class work is spread over a work-stealing pool.
+	 * 
+	 * @param parallelism
+	 *            the parallelism level, must be at least 1
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException(
+					"Parallelism must be at least 1: " + parallelism);
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * How the generation, formatting and writing of the classes is spread
+	 * over threads, {@link ExecutionMode#FORK_JOIN} unless configured.
+	 * 
+	 * @return the execution mode
+	 */
+	public ExecutionMode getExecutionMode() {
+		return executionMode;
+	}
+
+	/**
+	 * Set how the generation, formatting and writing of the classes is
+	 * spread over threads. In {@link ExecutionMode#PIPELINE} mode the
+	 * parallelism is ignored, each stage has its own number of workers.
+	 * 
+	 * @param executionMode
+	 *            the execution mode
+	 */
+	public void setExecutionMode(ExecutionMode executionMode) {
+		this.executionMode = executionMode;
+	}
+
+	/**
+	 * The number of worker threads of a pipeline stage. By default one class
+	 * is generated and written at a time, and as many are formatted as there
+	 * are processors.
+	 * 
+	 * @param stage
+	 *            {@link Phase#GENERATE}, {@link Phase#FORMAT} or
+	 *            {@link Phase#WRITE}
+	 * @return the number of workers
+	 */
+	public int getPipelineWorkers(Phase stage) {
+		Integer workers = pipelineWorkers.get(stage);
+		if (workers == null) {
+			throw new IllegalArgumentException("Not a pipeline stage: "
+					+ stage);
+		}
+		return workers;
+	}
+
+	/**
+	 * Set the number of worker threads of a pipeline stage.
+	 * 
+	 * @param stage
+	 *            {@link Phase#GENERATE}, {@link Phase#FORMAT} or
+	 *            {@link Phase#WRITE}
+	 * @param workers
+	 *            the number of workers, must be at least 1
+	 */
+	public void setPipelineWorkers(Phase stage, int workers) {
+		if (!pipelineWorkers.containsKey(stage)) {
+			throw new IllegalArgumentException("Not a pipeline stage: "
+					+ stage);
+		}
+		if (workers < 1) {
+			throw new IllegalArgumentException(
+					"Workers must be at least 1: " + workers);
+		}
+		pipelineWorkers.put(stage, workers);
+	}
+
+	/**
+	 * The number of classes the queue in front of a pipeline stage holds at
+	 * most.
+	 * 
+	 * @return the queue capacity
+	 */
+	public int getPipelineQueueCapacity() {
+		return pipelineQueueCapacity;
+	}
+
+	/**
+	 * Set the number of classes the queue in front of a pipeline stage holds
+	 * at most. When the queue is full, the stage before it waits, so the
+	 * memory taken by generated but not yet written classes stays bounded.
+	 * 
+	 * @param pipelineQueueCapacity
+	 *            the queue capacity, must be at least 1
+	 */
+	public void setPipelineQueueCapacity(int pipelineQueueCapacity) {
+		if (pipelineQueueCapacity < 1) {
+			throw new IllegalArgumentException(
+					"Queue capacity must be at least 1: "
+							+ pipelineQueueCapacity);
+		}
+		this.pipelineQueueCapacity = pipelineQueueCapacity;
+	}
+
+	/**
+	 * Whether classes whose fingerprint did not change since the last run are
+	 * skipped. Enabled by default.
+	 * 
+	 * @return true if only changed classes are generated
+	 */
+	public boolean isIncremental() {
+		return incremental;
+	}
+
+	/**
+	 * Enable or disable incremental generation. When disabled all classes are
+	 * generated again, the manifest is still written for the next run.
+	 * 
+	 * @param incremental
+	 *            true to generate changed classes only
+	 */
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+
+	/**
+	 * Whether generated files are only written when their content differs
+	 * from the existing file. Enabled by default.
+	 * 
+	 * @return true if identical files are left untouched
+	 */
+	public boolean isWriteIfChanged() {
+		return writeIfChanged;
+	}
+
+	/**
+	 * Enable or disable the write-if-changed output mode. When enabled,
+	 * identical files keep their timestamps so downstream compilers do not
+	 * process them again.
+	 * 
+	 * @param writeIfChanged
+	 *            true to leave identical files untouched
+	 */
+	public void setWriteIfChanged(boolean writeIfChanged) {
+		this.writeIfChanged = writeIfChanged;
+	}
+
+	/**
+	 * How the stereotyped elements are found in the model. Defaults to
+	 * walking the model.
+	 * 
+	 * @return the discovery strategy
+	 */
+	public ElementDiscovery getElementDiscovery() {
+		return elementDiscovery;
+	}
+
+	/**
+	 * Set how the stereotyped elements are found in the model.
+	 * 
+	 * @param elementDiscovery
+	 *            the discovery strategy
+	 */
+	public void setElementDiscovery(ElementDiscovery elementDiscovery) {
+		this.elementDiscovery = elementDiscovery;
+	}
+
+	/**
+	 * The name of the stereotype of the enumeration classes,
+	 * <code>Enumeration</code> unless configured.
+	 * 
+	 * @return the simple or qualified stereotype name
+	 */
+	public String getEnumerationStereotype() {
+		return enumerationStereotype;
+	}
+
+	/**
+	 * Set the name of the stereotype of the enumeration classes. A simple
+	 * name matches the stereotype of that name in any profile, a qualified
+	 * name like <code>kissmda-profile-core::Enumeration</code> only the one
+	 * of that profile.
+	 * 
+	 * @param enumerationStereotype
+	 *            the simple or qualified stereotype name
+	 */
+	public void setEnumerationStereotype(String enumerationStereotype) {
+		this.enumerationStereotype = enumerationStereotype;
+	}
+
+	/**
+	 * The name of the stereotype of the packages the Java packages start
+	 * below, <code>SourceDirectory</code> unless configured.
+	 * 
+	 * @return the simple or qualified stereotype name
+	 */
+	public String getSourceDirectoryStereotype() {
+		return sourceDirectoryStereotype;
+	}
+
+	/**
+	 * Set the name of the stereotype of the packages the Java packages start
+	 * below. It is matched like the one of the enumeration classes.
+	 * 
+	 * @param sourceDirectoryStereotype
+	 *            the simple or qualified stereotype name
+	 */
+	public void setSourceDirectoryStereotype(String sourceDirectoryStereotype) {
+		this.sourceDirectoryStereotype = sourceDirectoryStereotype;
+	}
+
+	/**
+	 * The directory the loaded model is cached in, null (the default) if the
+	 * model is always loaded from XMI.
+	 * 
+	 * @return the model cache directory
+	 */
+	public File getModelCacheDirectory() {
+		return modelCacheDirectory;
+	}
+
+	/**
+	 * Cache the loaded model and its profiles in the EMF binary format. The
+	 * cache is invalidated as soon as the model or any of its profiles
+	 * changes. A directory below the build output, e.g.
+	 * <code>target/andromda-model-cache</code>, is a good choice.
+	 * 
+	 * @param modelCacheDirectory
+	 *            the cache directory, null to disable the cache
+	 */
+	public void setModelCacheDirectory(File modelCacheDirectory) {
+		this.modelCacheDirectory = modelCacheDirectory;
+	}
+
+	/**
+	 * The profile the generated classes are formatted with, the Java 1.5
+	 * Eclipse defaults unless configured.
+	 * 
+	 * @return the formatter profile
+	 */
+	public FormatterProfile getFormatterProfile() {
+		return javaCodeFormatter.getProfile();
+	}
+
+	/**
+	 * Set the profile the generated classes are formatted with, e.g. loaded
+	 * with {@link FormatterProfile#load(String, File)} from the Eclipse
+	 * formatter settings of the project. Changing the profile generates all
+	 * classes again on the next incremental run.
+	 * 
+	 * @param formatterProfile
+	 *            the formatter profile
+	 */
+	public void setFormatterProfile(FormatterProfile formatterProfile) {
+		javaCodeFormatter.setProfile(formatterProfile);
+	}
+
+	/**
+	 * How the generated classes are formatted, with JDT unless configured.
+	 * 
+	 * @return the formatter mode
+	 */
+	public FormatterMode getFormatterMode() {
+		return javaCodeFormatter.getMode();
+	}
+
+	/**
+	 * Set how the generated classes are formatted. The lightweight mode
+	 * produces the same code as JDT with its default profile, several times
+	 * faster and without loading JDT as long as the generated code is known
+	 * to it.
+	 * 
+	 * @param formatterMode
+	 *            the formatter mode
+	 */
+	public void setFormatterMode(FormatterMode formatterMode) {
+		javaCodeFormatter.setMode(formatterMode);
+	}
+
+	/**
+	 * The cache of formatted source, null (the default) if every class is
+	 * formatted.
+	 * 
+	 * @return the formatter cache
+	 */
+	public FormatterCache getFormatterCache() {
+		return javaCodeFormatter.getCache();
+	}
+
+	/**
+	 * Cache the formatted source of the classes on disk, so later builds do
+	 * not format unchanged classes again, e.g. in
+	 * <code>target/andromda-formatter-cache</code>. The counters of the cache
+	 * add up over all runs using it.
+	 * 
+	 * @param formatterCache
+	 *            the formatter cache, null to format every class
+	 */
+	public void setFormatterCache(FormatterCache formatterCache) {
+		javaCodeFormatter.setCache(formatterCache);
+	}
+
+	/**
+	 * Whether the enumerations get codec methods, false unless configured.
+	 * 
+	 * @return true if the codec methods are generated
+	 */
+	public boolean isGenerateCodecs() {
+		return enumClassGenerator.isGenerateCodecs();
+	}
+
+	/**
+	 * Generate methods into the enumerations which encode them without
+	 * reflection, for services writing them often. Changing this generates
+	 * all classes again on the next incremental run.
+	 * 
+	 * @param generateCodecs
+	 *            true to generate the codec methods
+	 */
+	public void setGenerateCodecs(boolean generateCodecs) {
+		enumClassGenerator.setGenerateCodecs(generateCodecs);
+	}
+
+	/**
+	 * The publisher of the generation events. Register listeners with it to
+	 * receive the events of every generated class in batches, on a thread of
+	 * their own.
+	 * 
+	 * @return the event publisher
+	 */
+	public GenerationEventPublisher getEventPublisher() {
+		return eventPublisher;
+	}
+
+	/**
+	 * The counts of the last transformation run.
+	 * 
+	 * @return the statistics of the last run
+	 */
+	public GenerationStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * The timings and counters of the last transformation run. The report is
+	 * also written to the target directory.
+	 * 
+	 * @return the report of the last run
+	 */
+	public GenerationReport getReport() {
+		return report;
+	}
+
 	/**
 	 * Start the transformation and generation.
 	 * 
@@ -87,76 +527,379 @@ public class JavaTransformer implements Transformer {
 	 */
 	@Override
 	public void transform(Context context) throws TransformerException {
-		this.context = context;
+		GenerationReport report = new GenerationReport();
 		try {
 			// Get the root package
+			long wallStart = System.nanoTime();
+			long cpuStart = GenerationReport.currentThreadCpuTime();
 			org.eclipse.uml2.uml.Package outPackage = getRootPackage(context);
-			sourceDirectoryPackageName = "";
+			report.record(Phase.LOAD, wallStart, cpuStart);
+			transform(context, outPackage, report, true);
+		} catch (URISyntaxException e) {
+			throw new TransformerException(e);
+		} catch (IOException e) {
+			throw new TransformerException(e);
+		}
+	}
+
+	/**
+	 * Start the transformation and generation of a model which is already
+	 * loaded, e.g. kept in memory between runs.
+	 * 
+	 * @param context
+	 *            context object from Maven plugin
+	 * @param outPackage
+	 *            the root package of the model
+	 * @exception throw
+	 *                TransformerException if something wrong happens
+	 */
+	public void transform(Context context,
+			org.eclipse.uml2.uml.Package outPackage)
+			throws TransformerException {
+		transform(context, outPackage, new GenerationReport(), false);
+	}
 
-			// Check the stereotype of the root package
-			checkStereotypeRootPackage(outPackage);
+	/**
+	 * Transform a model. Once the enumeration classes are collected into a
+	 * snapshot, the model is no longer read. A model loaded by this run is
+	 * unloaded right away, one passed in by the caller is left alone.
+	 */
+	private void transform(Context context,
+			org.eclipse.uml2.uml.Package outPackage, GenerationReport report,
+			boolean unloadModel) throws TransformerException {
+		this.context = context;
+		this.report = report;
+		this.statistics = report.getStatistics();
+		try {
+			sourceDirectoryPackageName = "";
 
 			// Get all elements with defined stereotypes and enums
-			EList<Element> elements = outPackage.allOwnedElements();
-			for (Element element : elements) {
-				// Stereotypes
-				EList<Stereotype> stereotypes = element.getAppliedStereotypes();
-				for (Stereotype stereotype : stereotypes) {
-					if (stereotype.getName().equals(STEREOTYPE_SOURCEDIRECTORY)) {
-						// From this SourceDirectory we can work...
-						org.eclipse.uml2.uml.Package packagez = (org.eclipse.uml2.uml.Package) element;
-						sourceDirectoryPackageName = packagez.getName();
-						logger.log(Level.FINE, "SourceDirectory package name: "
-								+ sourceDirectoryPackageName);
-					}
-					if (stereotype.getName().equals(STEREOTYPE_ENUMERATION)) {
-						generateEnumerationClass(element);
-					}
-				}
+			long wallStart = System.nanoTime();
+			long cpuStart = GenerationReport.currentThreadCpuTime();
+			Map<String, GenerationUnit> units = new LinkedHashMap<String, GenerationUnit>();
+			ModelSnapshot.Builder builder = new ModelSnapshot.Builder(
+					sourceDirectoryStereotype, enumerationStereotype);
+			if (elementDiscovery == ElementDiscovery.MODEL_WALK) {
+				collectByModelWalk(outPackage, units, builder);
+			} else {
+				collectByStereotypeApplications(outPackage, units, builder);
+			}
+			snapshot = builder.build();
+			if (unloadModel) {
+				unload(outPackage);
+			}
+			report.record(Phase.DISCOVERY, wallStart, cpuStart);
 
-				/***
-				// Enums
-				if (element.eClass().getName().equals(TYPE_ENUM)) {
-					generateEnum(element);
-				}
-				***/
+			wallStart = System.nanoTime();
+			cpuStart = GenerationReport.currentThreadCpuTime();
+			File targetDirectory = new File(context.getTargetModel());
+			manifest = GenerationManifest.load(targetDirectory);
+			List<GenerationUnit> changedUnits = selectChangedUnits(units
+					.values());
+			report.record(Phase.FINGERPRINT, wallStart, cpuStart);
+			generateEnumerationClasses(changedUnits);
+
+			// Remove the classes of deleted classifiers
+			List<String> staleFileNames = manifest.pruneStaleFiles();
+			statistics.addRemoved(staleFileNames.size());
+			manifest.save();
+			report.finish();
+			report.write(targetDirectory, context.getSourceModel());
+			logger.log(Level.INFO, "Enumeration classes: " + report);
+			if (javaCodeFormatter.getCache() != null) {
+				logger.log(Level.INFO, "Using " + javaCodeFormatter.getCache());
 			}
-		} catch (URISyntaxException e) {
-			throw new TransformerException(e);
 		} catch (IOException e) {
 			throw new TransformerException(e);
+		} finally {
+			snapshot = null;
+			// The listeners see all events of a run before it returns
+			eventPublisher.flush();
+		}
+	}
+
+	/**
+	 * Unload all resources of the model and its profiles, so that the memory
+	 * they take is freed before the classes are generated.
+	 */
+	private void unload(org.eclipse.uml2.uml.Package outPackage) {
+		Resource resource = outPackage.eResource();
+		if (resource == null) {
+			return;
+		}
+		ResourceSet resourceSet = resource.getResourceSet();
+		if (resourceSet == null) {
+			resource.unload();
+			return;
+		}
+		for (Resource loaded : resourceSet.getResources()) {
+			loaded.unload();
+		}
+		resourceSet.getResources().clear();
+	}
+
+	private void collectByModelWalk(org.eclipse.uml2.uml.Package outPackage,
+			Map<String, GenerationUnit> units, ModelSnapshot.Builder builder) {
+		// Check the stereotype of the root package
+		checkStereotypeRootPackage(outPackage);
+
+		// Stereotyped elements are packages and classes, anything below
+		// operations, properties or comments can be pruned
+		Iterable<Element> elements = ModelTraversal.of(outPackage)
+				.descendInto(ModelTraversal.PACKAGES_AND_CLASSIFIERS)
+				.include(ModelTraversal.PACKAGES_AND_CLASSIFIERS);
+		for (Element element : elements) {
+			report.addElementsVisited(1);
+			// Stereotypes
+			if (stereotypeFinder.isApplied(element, sourceDirectoryStereotype)) {
+				report.addStereotypesMatched(1);
+				// From this SourceDirectory we can work...
+				org.eclipse.uml2.uml.Package packagez = (org.eclipse.uml2.uml.Package) element;
+				sourceDirectoryPackageName = packagez.getName();
+				logger.log(Level.FINE, "SourceDirectory package name: "
+						+ sourceDirectoryPackageName);
+			}
+			if (stereotypeFinder.isApplied(element, enumerationStereotype)) {
+				report.addStereotypesMatched(1);
+				collectEnumerationClass(element, units, builder);
+			}
+
+			/***
+			// Enums
+			if (element.eClass().getName().equals(TYPE_ENUM)) {
+				generateEnum(element);
+			}
+			***/
+		}
+	}
+
+	/**
+	 * Collect the enumeration classes from the stereotype applications. The
+	 * stereotyped elements are put in the order the model walk visits them,
+	 * so each class is generated relative to the last SourceDirectory package
+	 * before it, exactly as with {@link ElementDiscovery#MODEL_WALK}.
+	 */
+	private void collectByStereotypeApplications(
+			org.eclipse.uml2.uml.Package outPackage,
+			Map<String, GenerationUnit> units, ModelSnapshot.Builder builder) {
+		Map<String, List<Element>> elements = stereotypeFinder
+				.findByApplications(outPackage, sourceDirectoryStereotype,
+						enumerationStereotype);
+		Set<Element> sourceDirectories = new HashSet<Element>(
+				elements.get(sourceDirectoryStereotype));
+		Set<Element> enumerations = new HashSet<Element>(
+				elements.get(enumerationStereotype));
+		Set<Element> stereotyped = new LinkedHashSet<Element>(sourceDirectories);
+		stereotyped.addAll(enumerations);
+		List<WalkPosition> positions = new ArrayList<WalkPosition>();
+		Map<EObject, Integer> indexes = new IdentityHashMap<EObject, Integer>();
+		for (Element element : stereotyped) {
+			int[] path = getWalkPath(outPackage, element, indexes);
+			if (path != null) {
+				positions.add(new WalkPosition(element, path));
+			}
+		}
+		Collections.sort(positions);
+
+		// Only the base elements of the applications are looked at
+		report.addElementsVisited(stereotyped.size());
+		for (WalkPosition position : positions) {
+			Element element = position.element;
+			if (sourceDirectories.contains(element)) {
+				report.addStereotypesMatched(1);
+				sourceDirectoryPackageName = ((org.eclipse.uml2.uml.Package) element)
+						.getName();
+				logger.log(Level.FINE, "SourceDirectory package name: "
+						+ sourceDirectoryPackageName);
+			}
+			if (enumerations.contains(element)) {
+				report.addStereotypesMatched(1);
+				collectEnumerationClass(element, units, builder);
+			}
 		}
 	}
 
-	private void generateEnumerationClass(Element element) throws IOException {
+	/**
+	 * The position of an element in the model walk: the indexes of the
+	 * element and its owners in the contents of their containers, starting
+	 * below the root. Null if the walk does not reach the element, because it
+	 * or one of its owners is not a package or classifier.
+	 */
+	private static int[] getWalkPath(org.eclipse.uml2.uml.Package root,
+			Element element, Map<EObject, Integer> indexes) {
+		List<Integer> path = new ArrayList<Integer>();
+		for (EObject eObject = element; eObject != root; eObject = eObject
+				.eContainer()) {
+			EObject container = eObject.eContainer();
+			if (container == null
+					|| !(eObject instanceof Element)
+					|| !ModelTraversal.PACKAGES_AND_CLASSIFIERS
+							.apply((Element) eObject)) {
+				return null;
+			}
+			path.add(getIndex(container, eObject, indexes));
+		}
+		int[] walkPath = new int[path.size()];
+		for (int i = 0; i < walkPath.length; i++) {
+			walkPath[i] = path.get(walkPath.length - 1 - i);
+		}
+		return walkPath;
+	}
+
+	/**
+	 * The index of an element in the contents of its container. The first
+	 * time an element of a container is looked up, the indexes of all its
+	 * contents are remembered, so every containment list is scanned once
+	 * however many stereotyped elements it holds.
+	 */
+	private static int getIndex(EObject container, EObject eObject,
+			Map<EObject, Integer> indexes) {
+		Integer index = indexes.get(eObject);
+		if (index == null) {
+			int i = 0;
+			for (EObject content : container.eContents()) {
+				indexes.put(content, i++);
+			}
+			index = indexes.get(eObject);
+		}
+		return index;
+	}
+
+	private void collectEnumerationClass(Element element,
+			Map<String, GenerationUnit> units, ModelSnapshot.Builder builder) {
 		Class clazz = (Class) element;
 		logger.log(Level.FINE, "Enumeration class: " + clazz.getName());
+		String fullPackageName = packageHelper.getFullPackageName(clazz,
+				sourceDirectoryPackageName);
+		// The last class written to a file wins, as in a serial run
+		String fileName = fullPackageName + "." + clazz.getName();
+		units.remove(fileName);
+		// The package declaration is the one the generator names
+		int index = builder.add(clazz,
+				enumClassGenerator.getJavaPackageName(clazz));
+		units.put(fileName, new GenerationUnit(index, fullPackageName,
+				fileName));
+	}
+
+	private List<GenerationUnit> selectChangedUnits(
+			Collection<GenerationUnit> units) {
+		List<GenerationUnit> changedUnits = new ArrayList<GenerationUnit>();
+		String generatorVersion = enumClassGenerator.getVersion();
+		String formatterVersion = javaCodeFormatter.getVersion();
+		for (GenerationUnit unit : units) {
+			unit.fingerprint = GenerationManifest.fingerprint(snapshot,
+					unit.element, unit.fullPackageName, generatorVersion,
+					formatterVersion);
+			if (incremental
+					&& manifest.isUpToDate(unit.fileName, unit.fingerprint)) {
+				logger.log(Level.FINE, "Up to date: " + unit.fileName);
+				manifest.record(unit.fileName, unit.fingerprint);
+				statistics.incrementSkipped();
+			} else {
+				changedUnits.add(unit);
+			}
+		}
+		return changedUnits;
+	}
+
+	private void generateEnumerationClasses(List<GenerationUnit> units)
+			throws IOException {
+		if (executionMode == ExecutionMode.PIPELINE) {
+			generateByPipeline(units);
+			return;
+		}
+		if (parallelism == 1 || units.size() < 2) {
+			for (GenerationUnit unit : units) {
+				generateEnumerationClass(unit);
+			}
+			return;
+		}
+
+		// The workers only read the snapshot, which is immutable
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			pool.invoke(new GenerateAction(units, 0, units.size()));
+		} catch (TransformerException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw e;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private void generateByPipeline(List<GenerationUnit> units)
+			throws IOException {
+		if (units.isEmpty()) {
+			return;
+		}
+		new GenerationPipeline<GenerationUnit>(pipelineQueueCapacity)
+				.stage(Phase.GENERATE, pipelineWorkers.get(Phase.GENERATE),
+						new GenerationPipeline.Stage<GenerationUnit>() {
+							@Override
+							public void process(GenerationUnit unit) {
+								generateSource(unit);
+							}
+						})
+				.stage(Phase.FORMAT, pipelineWorkers.get(Phase.FORMAT),
+						new GenerationPipeline.Stage<GenerationUnit>() {
+							@Override
+							public void process(GenerationUnit unit) {
+								formatSource(unit);
+							}
+						})
+				.stage(Phase.WRITE, pipelineWorkers.get(Phase.WRITE),
+						new GenerationPipeline.Stage<GenerationUnit>() {
+							@Override
+							public void process(GenerationUnit unit)
+									throws IOException {
+								writeClassFile(unit);
+							}
+						}).run(units, report);
+	}
+
+	private void generateEnumerationClass(GenerationUnit unit)
+			throws IOException {
 		// Generate the enumeration for this class
 		/***
 		CompilationUnit compilationUnit = enumClassGenerator.generateEnum(clazz,
 				sourceDirectoryPackageName);
 		generateClassFile(clazz, compilationUnit);
 		***/
-		String fileContent=enumClassGenerator.generateEnumClass(clazz);
-		generateClassFile(clazz, fileContent);
+		generateSource(unit);
+		formatSource(unit);
+		writeClassFile(unit);
+	}
+
+	private void generateSource(GenerationUnit unit) {
+		eventPublisher.publish(new GenerationEvent(
+				GenerationEvent.Type.BEFORE_GENERATE, unit.fileName, false));
+		long start = System.nanoTime();
+		long cpuStart = GenerationReport.currentThreadCpuTime();
+		unit.source = enumClassGenerator.generateEnumClass(snapshot,
+				unit.element);
+		unit.nanos = report.record(Phase.GENERATE, start, cpuStart);
 	}
 
 	private void checkStereotypeRootPackage(
 			org.eclipse.uml2.uml.Package outPackage) {
-		EList<Stereotype> rootStereotypes = outPackage.getAppliedStereotypes();
-		for (Stereotype stereotype : rootStereotypes) {
-			if (stereotype.getName().equals(STEREOTYPE_SOURCEDIRECTORY)) {
-				// From this SourceDirectory we can work...
-				org.eclipse.uml2.uml.Package packagez = outPackage;
-				sourceDirectoryPackageName = packagez.getName();
-				logger.log(Level.FINE, "SourceDirectory package name: "
-						+ sourceDirectoryPackageName);
-			}
+		if (stereotypeFinder.isApplied(outPackage, sourceDirectoryStereotype)) {
+			report.addStereotypesMatched(1);
+			// From this SourceDirectory we can work...
+			org.eclipse.uml2.uml.Package packagez = outPackage;
+			sourceDirectoryPackageName = packagez.getName();
+			logger.log(Level.FINE, "SourceDirectory package name: "
+					+ sourceDirectoryPackageName);
 		}
 	}
 
 	private org.eclipse.uml2.uml.Package getRootPackage(Context context)
-			throws URISyntaxException {
+			throws URISyntaxException, IOException {
+		if (modelCacheDirectory != null) {
+			return modelLoader.load(new File(context.getSourceModel()),
+					modelCacheDirectory);
+		}
 		org.eclipse.uml2.uml.Package outPackage = packageHelper
 				.getRootPackage(context);
 		return outPackage;
@@ -186,14 +929,139 @@ public class JavaTransformer implements Transformer {
                 clazz.getName(), formattedCode);
 	}
 	
-    private void generateClassFile(Classifier clazz, String fileContent) throws IOException {
+    private void formatSource(GenerationUnit unit) {
+        // Format before we generate the class file
+        long wallStart = System.nanoTime();
+        long cpuStart = GenerationReport.currentThreadCpuTime();
+        String formattedCode = javaCodeFormatter.format(unit.source);
+        unit.nanos += report.record(Phase.FORMAT, wallStart, cpuStart);
+        report.addCharsFormatted(unit.source.length());
+        unit.source = formattedCode;
+        eventPublisher.publish(new GenerationEvent(
+                GenerationEvent.Type.AFTER_FORMAT, unit.fileName, false));
+    }
+
+    private void writeClassFile(GenerationUnit unit) throws IOException {
+        long wallStart = System.nanoTime();
+        long cpuStart = GenerationReport.currentThreadCpuTime();
+        String className = snapshot.getName(unit.element);
+        boolean written = true;
+        if (!writeIfChanged) {
+            javaFileWriter.createJavaFile(context, unit.fullPackageName,
+                    className, unit.source);
+            statistics.incrementWritten();
+        } else if (changedJavaFileWriter.createJavaFile(context,
+                unit.fullPackageName, className, unit.source)) {
+            statistics.incrementWritten();
+        } else {
+            statistics.incrementUnchanged();
+            written = false;
+        }
+        unit.nanos += report.record(Phase.WRITE, wallStart, cpuStart);
+        // The source is not needed any more
+        unit.source = null;
+        eventPublisher.publish(new GenerationEvent(
+                GenerationEvent.Type.AFTER_WRITE, unit.fileName, written));
+        manifest.record(unit.fileName, unit.fingerprint);
+        report.addClassGenerated(unit.fileName, unit.nanos);
+    }
+
+	/**
+	 * One enumeration class to be generated, by its index in the model
+	 * snapshot, together with the package it is generated into and its
+	 * fingerprint.
+	 */
+	private static final class GenerationUnit {
+
+		private final int element;
+
+		private final String fullPackageName;
+
+		private final String fileName;
+
+		private String fingerprint;
+
+		/**
+		 * The generated source, then the formatted source until it is
+		 * written.
+		 */
+		private String source;
+
+		/**
+		 * The time spent generating, formatting and writing the class.
+		 */
+		private long nanos;
+
+		private GenerationUnit(int element, String fullPackageName,
+				String fileName) {
+			this.element = element;
+			this.fullPackageName = fullPackageName;
+			this.fileName = fileName;
+		}
+	}
+
+	/**
+	 * A stereotyped element with its position in the model walk. Owners come
+	 * before the elements they own, siblings in the order of their
+	 * containment list.
+	 */
+	private static final class WalkPosition implements
+			Comparable<WalkPosition> {
+
+		private final Element element;
 
-                String fullPackageName = packageHelper.getFullPackageName(clazz,
-                        sourceDirectoryPackageName);
+		private final int[] path;
 
-                // Format before we generate the class file
-                String formattedCode = javaCodeFormatter.format(fileContent);
-                javaFileWriter.createJavaFile(context, fullPackageName,
-                        clazz.getName(), formattedCode);
-            }	
-}
\ No newline at end of file
+		private WalkPosition(Element element, int[] path) {
+			this.element = element;
+			this.path = path;
+		}
+
+		@Override
+		public int compareTo(WalkPosition other) {
+			int length = Math.min(path.length, other.path.length);
+			for (int i = 0; i < length; i++) {
+				if (path[i] != other.path[i]) {
+					return path[i] < other.path[i] ? -1 : 1;
+				}
+			}
+			return path.length - other.path.length;
+		}
+	}
+
+	/**
+	 * Fork-join action which splits the units in halves until a single class
+	 * is left, which is then generated, formatted and written.
+	 */
+	private final class GenerateAction extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<GenerationUnit> units;
+
+		private final int from;
+
+		private final int to;
+
+		private GenerateAction(List<GenerationUnit> units, int from, int to) {
+			this.units = units;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				try {
+					generateEnumerationClass(units.get(from));
+				} catch (IOException e) {
+					throw new TransformerException(e);
+				}
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new GenerateAction(units, from, middle),
+						new GenerateAction(units, middle, to));
+			}
+		}
+	}
+}
@@ -0,0 +1,548 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Formats the code the cartridge generates the way the JDT code formatter
+ * does with its default profile, without loading JDT. It only knows a few
+ * constructs, each generated on a line of its own: the header comment,
+ * package, type declarations, Javadoc comments, enum constants, fields,
+ * methods with one statement per line, <code>if</code>, <code>for</code> and
+ * <code>switch</code> blocks in methods and one-line methods. For anything
+ * else it gives up and returns null, so the caller can format with JDT.
+ *
+ * <p>
+ * Like JDT it indents with tabs, keeps the header comment as it is, expands
+ * one-line methods, joins the enum constants which are not separated by
+ * comments and reflows the Javadoc comments to 80 columns. A
+ * <code>&lt;code&gt;</code> span in a comment is never broken. Code lines are
+ * kept as they are, the cartridge generates them with the JDT spacing; lines
+ * which JDT could wrap are left to JDT.
+ * </p>
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class LightweightJavaFormatter {
+
+	private static final int LINE_LENGTH = 80;
+
+	private static final int TAB_SIZE = 4;
+
+	private static final String CODE_START = "<code>";
+
+	private static final String CODE_END = "</code>";
+
+	private static final String ID = "[A-Za-z_$][A-Za-z0-9_$]*+";
+
+	private static final String QUALIFIED_NAME = ID + "(?:\\." + ID + ")*+";
+
+	private static final String TYPE = QUALIFIED_NAME + "(?:<"
+			+ QUALIFIED_NAME + "(?:, " + QUALIFIED_NAME + ")*>)?(?:\\[\\])*";
+
+	private static final String LITERAL = "\"(?:[^\"\\\\]|\\\\.)*+\"|'(?:[^'\\\\]|\\\\.)'"
+			+ "|0[xX][0-9A-Fa-f]++[Ll]?|-?[0-9]+(?:\\.[0-9]+)?[LlFfDd]?|true|false|null";
+
+	private static final String SIMPLE_ARGUMENT = "(?:" + QUALIFIED_NAME
+			+ "|" + LITERAL + ")";
+
+	/**
+	 * The binary operators, JDT puts a space on both sides of them.
+	 */
+	private static final String OPERATOR = "(?:&&|\\|\\||[=!<>]=|<<|>>>?|[-+*/%&|^<>])";
+
+	/**
+	 * JDT puts a space after a cast.
+	 */
+	private static final String CAST = "(?:\\((?:byte|short|char|int|long|float|double)\\) )";
+
+	/**
+	 * A chain of calls whose arguments may be expressions with calls again,
+	 * up to three levels deep.
+	 */
+	private static final String CALL = call(expression(1));
+
+	private static final String EXPRESSION = expression(2);
+
+	private static final String MODIFIERS = "(?:(?:public|protected|private|static|final|abstract|transient|volatile|synchronized) )*+";
+
+	private static final String PARAMETERS = "\\((?:(?:final )?" + TYPE + " "
+			+ ID + "(?:, (?:final )?" + TYPE + " " + ID + ")*)?\\)";
+
+	private static final String METHOD_HEAD = MODIFIERS + "(?:" + TYPE
+			+ " )?" + ID + PARAMETERS + "(?: throws " + QUALIFIED_NAME
+			+ "(?:, " + QUALIFIED_NAME + ")*)? \\{";
+
+	private static final String STATEMENT = "(?:return(?: " + EXPRESSION
+			+ ")?|" + QUALIFIED_NAME + " = " + EXPRESSION + "|(?:final )?"
+			+ TYPE + " " + ID + " = " + EXPRESSION + "|" + CALL + "|throw "
+			+ EXPRESSION + ");";
+
+	private static final Pattern PACKAGE = Pattern.compile("package "
+			+ QUALIFIED_NAME + ";");
+
+	private static final Pattern IMPORT = Pattern.compile("import (?:static )?"
+			+ QUALIFIED_NAME + "(?:\\.\\*)?;");
+
+	private static final Pattern TYPE_DECLARATION = Pattern.compile(MODIFIERS
+			+ "(?:class|enum|interface) " + ID + "(?: extends " + TYPE
+			+ ")?(?: implements " + TYPE + "(?:, " + TYPE + ")*)? \\{");
+
+	private static final Pattern ENUM_CONSTANT = Pattern.compile("(" + ID
+			+ ")(?:\\((" + LITERAL + ")\\))?([,;])");
+
+	private static final Pattern FIELD = Pattern.compile(MODIFIERS + TYPE
+			+ " " + ID + "(?: = " + EXPRESSION + ")?;");
+
+	private static final Pattern BLOCK_START = Pattern.compile(METHOD_HEAD);
+
+	private static final Pattern BLOCK_STATEMENT = Pattern.compile(STATEMENT);
+
+	private static final Pattern ONE_LINE_METHOD = Pattern.compile("("
+			+ METHOD_HEAD + ") (" + STATEMENT + ") \\}");
+
+	private static final Pattern CONTROL_START = Pattern.compile("(?:if|while) \\(!?"
+			+ EXPRESSION + "\\) \\{|for \\((?:final )?" + TYPE + " " + ID
+			+ " : " + EXPRESSION + "\\) \\{");
+
+	private static final Pattern SWITCH_START = Pattern.compile("switch \\("
+			+ EXPRESSION + "\\) \\{");
+
+	/**
+	 * JDT puts a space before the colon of a label.
+	 */
+	private static final Pattern SWITCH_LABEL = Pattern.compile("case (?:"
+			+ LITERAL + "|" + ID + ") :|default :");
+
+	/**
+	 * The kinds of blocks, in the order they are opened.
+	 */
+	private static final char TYPE_BLOCK = 't';
+
+	private static final char STATEMENT_BLOCK = 'm';
+
+	private static final char SWITCH_BLOCK = 's';
+
+	/**
+	 * Format generated code.
+	 *
+	 * @param source
+	 *            the generated code
+	 * @param lineSeparator
+	 *            the line separator of the formatted code
+	 * @return the formatted code, null if the code contains anything this
+	 *         formatter does not know
+	 */
+	public String format(String source, String lineSeparator) {
+		if (!source.endsWith("\n")) {
+			return null;
+		}
+		String[] lines = splitLines(source);
+		int end = lines.length;
+		StringBuilder formatted = new StringBuilder(source.length()
+				+ source.length() / 8);
+		int i = appendHeader(lines, end, formatted, lineSeparator);
+		if (i < 0 || i > 0 && (i == end || !lines[i].startsWith("package "))) {
+			// JDT formats a comment which is not before the package
+			return null;
+		}
+		int depth = 0;
+		// The kind of each open block, the innermost last
+		StringBuilder blocks = new StringBuilder();
+		for (; i < end; i++) {
+			String line = lines[i].trim();
+			if (line.startsWith("/**")) {
+				i = appendJavadoc(lines, i, end, depth, formatted,
+						lineSeparator);
+				if (i < 0) {
+					return null;
+				}
+				continue;
+			}
+			if (line.equals("}")) {
+				if (depth == 0) {
+					return null;
+				}
+				depth--;
+				blocks.setLength(depth);
+				appendLine(formatted, depth, line, lineSeparator);
+				continue;
+			}
+			if (line.isEmpty()) {
+				return null;
+			}
+			// Only the patterns of lines ending like this one are tried
+			char last = line.charAt(line.length() - 1);
+			char block = depth == 0 ? TYPE_BLOCK : blocks.charAt(depth - 1);
+			if (block != TYPE_BLOCK) {
+				if (!appendStatement(formatted, depth, block, line, last,
+						lineSeparator)) {
+					return null;
+				}
+				if (last == '{') {
+					blocks.append(SWITCH_START.matcher(line).matches() ? SWITCH_BLOCK
+							: STATEMENT_BLOCK);
+					depth++;
+				}
+				continue;
+			}
+			if (last == '}') {
+				Matcher oneLineMethod = ONE_LINE_METHOD.matcher(line);
+				if (depth == 0
+						|| !oneLineMethod.matches()
+						|| !appendCode(formatted, depth, oneLineMethod.group(1),
+								lineSeparator)
+						|| !appendCode(formatted, depth + 1,
+								oneLineMethod.group(2), lineSeparator)) {
+					return null;
+				}
+				appendLine(formatted, depth, "}", lineSeparator);
+			} else if (last == '{') {
+				if (TYPE_DECLARATION.matcher(line).matches()) {
+					blocks.append(TYPE_BLOCK);
+				} else if (depth > 0 && BLOCK_START.matcher(line).matches()) {
+					blocks.append(STATEMENT_BLOCK);
+				} else {
+					return null;
+				}
+				if (!appendCode(formatted, depth, line, lineSeparator)) {
+					return null;
+				}
+				depth++;
+			} else if (depth > 0 && ENUM_CONSTANT.matcher(line).matches()) {
+				i = appendEnumConstants(lines, i, end, depth, formatted,
+						lineSeparator);
+			} else if (depth == 0 ? PACKAGE.matcher(line).matches()
+					|| IMPORT.matcher(line).matches() : FIELD.matcher(line)
+					.matches()) {
+				if (!appendCode(formatted, depth, line, lineSeparator)) {
+					return null;
+				}
+			} else {
+				return null;
+			}
+		}
+		return depth == 0 ? formatted.toString() : null;
+	}
+
+	/**
+	 * Append a line of a method body: a statement, the start of a nested
+	 * block or, in a <code>switch</code> block, a label. The statements after
+	 * a label are indented once more than the label, blocks are not supported
+	 * there.
+	 *
+	 * @return false if the line is not known or too long
+	 */
+	private boolean appendStatement(StringBuilder formatted, int depth,
+			char block, String line, char last, String lineSeparator) {
+		if (block == SWITCH_BLOCK) {
+			if (last == ':') {
+				return SWITCH_LABEL.matcher(line).matches()
+						&& appendCode(formatted, depth, line, lineSeparator);
+			}
+			return last == ';' && BLOCK_STATEMENT.matcher(line).matches()
+					&& appendCode(formatted, depth + 1, line, lineSeparator);
+		}
+		if (last == '{') {
+			return (CONTROL_START.matcher(line).matches() || SWITCH_START
+					.matcher(line).matches())
+					&& appendCode(formatted, depth, line, lineSeparator);
+		}
+		return last == ';' && BLOCK_STATEMENT.matcher(line).matches()
+				&& appendCode(formatted, depth, line, lineSeparator);
+	}
+
+	/**
+	 * Copy the comment before the package declaration, JDT leaves it as it
+	 * is.
+	 *
+	 * @return the index of the first line after the header, -1 if the header
+	 *         is not a single comment
+	 */
+	private int appendHeader(String[] lines, int end, StringBuilder formatted,
+			String lineSeparator) {
+		if (end == 0 || !lines[0].startsWith("/*")) {
+			return 0;
+		}
+		for (int i = 0; i < end; i++) {
+			String line = lines[i];
+			if (i > 0 && line.contains("/*")) {
+				return -1;
+			}
+			formatted.append(line).append(lineSeparator);
+			int close = line.indexOf("*/");
+			if (close >= 0) {
+				return line.substring(close + 2).trim().isEmpty() ? i + 1 : -1;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Reflow a Javadoc comment: the text lines are joined into paragraphs,
+	 * which are broken again at 80 columns, and empty lines are kept.
+	 *
+	 * @return the index of the closing line of the comment, -1 if the comment
+	 *         contains anything JDT formats differently
+	 */
+	private int appendJavadoc(String[] lines, int start, int end, int depth,
+			StringBuilder formatted, String lineSeparator) {
+		if (!lines[start].trim().equals("/**")) {
+			return -1;
+		}
+		appendLine(formatted, depth, "/**", lineSeparator);
+		List<String> paragraph = new ArrayList<String>();
+		boolean empty = true;
+		for (int i = start + 1; i < end; i++) {
+			String line = lines[i].trim();
+			if (line.equals("*/")) {
+				if (empty) {
+					// JDT does not format a comment without text
+					return -1;
+				}
+				if (!appendParagraph(formatted, depth, paragraph,
+						lineSeparator)) {
+					return -1;
+				}
+				appendLine(formatted, depth, " */", lineSeparator);
+				return i;
+			}
+			String text;
+			if (line.equals("*")) {
+				text = "";
+			} else if (line.startsWith("* ")) {
+				text = line.substring(2);
+			} else {
+				return -1;
+			}
+			if (text.trim().isEmpty()) {
+				if (!appendParagraph(formatted, depth, paragraph,
+						lineSeparator)) {
+					return -1;
+				}
+				paragraph.clear();
+				appendLine(formatted, depth, " * ", lineSeparator);
+			} else if (!splitWords(text, paragraph)) {
+				return -1;
+			} else {
+				empty = false;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Split comment text into the words a paragraph may be broken between.
+	 * A <code>&lt;code&gt;</code> span is kept in one word with its spaces.
+	 *
+	 * @return false if the text contains markup JDT formats on its own
+	 */
+	private boolean splitWords(String text, List<String> words) {
+		int length = text.length();
+		int i = 0;
+		while (i < length) {
+			while (i < length && isSpace(text.charAt(i))) {
+				i++;
+			}
+			if (i == length) {
+				break;
+			}
+			int wordStart = i;
+			char first = text.charAt(i);
+			if (first == '@' || first == '*') {
+				// Block tags and list markers
+				return false;
+			}
+			while (i < length && !isSpace(text.charAt(i))) {
+				char c = text.charAt(i);
+				if (c == '<') {
+					if (!text.startsWith(CODE_START, i)) {
+						return false;
+					}
+					int codeEnd = text.indexOf(CODE_END, i);
+					if (codeEnd < 0
+							|| text.substring(i + CODE_START.length(), codeEnd)
+									.indexOf('<') >= 0) {
+						return false;
+					}
+					i = codeEnd + CODE_END.length();
+				} else if (c == '>' || c == '{' || c == '}' || c < ' ') {
+					return false;
+				} else {
+					i++;
+				}
+			}
+			words.add(text.substring(wordStart, i));
+		}
+		return true;
+	}
+
+	private boolean appendParagraph(StringBuilder formatted, int depth,
+			List<String> words, String lineSeparator) {
+		if (words.isEmpty()) {
+			return true;
+		}
+		int prefixWidth = depth * TAB_SIZE + 3;
+		StringBuilder line = new StringBuilder(LINE_LENGTH);
+		for (String word : words) {
+			if (word.contains("\t")) {
+				// The width of a tab in a code span depends on its column
+				return false;
+			}
+			if (line.length() > 0
+					&& prefixWidth + line.length() + 1 + word.length() > LINE_LENGTH) {
+				appendLine(formatted, depth, " * " + line, lineSeparator);
+				line.setLength(0);
+			}
+			if (line.length() > 0) {
+				line.append(' ');
+			}
+			line.append(word);
+		}
+		appendLine(formatted, depth, " * " + line, lineSeparator);
+		return true;
+	}
+
+	/**
+	 * Join enum constants which are not separated by comments on one line.
+	 * Like JDT, the line is never broken between constants, only the argument
+	 * of a constant is moved to a continuation line when its closing
+	 * parenthesis would go beyond 80 columns.
+	 *
+	 * @return the index of the last constant joined
+	 */
+	private int appendEnumConstants(String[] lines, int start, int end,
+			int depth, StringBuilder formatted, String lineSeparator) {
+		appendIndentation(formatted, depth);
+		int column = depth * TAB_SIZE;
+		int i = start;
+		while (true) {
+			Matcher constant = ENUM_CONSTANT.matcher(lines[i].trim());
+			constant.matches();
+			if (i > start) {
+				formatted.append(' ');
+				column++;
+			}
+			String name = constant.group(1);
+			String argument = constant.group(2);
+			String separator = constant.group(3);
+			formatted.append(name);
+			column += name.length();
+			if (argument != null) {
+				formatted.append('(');
+				column++;
+				if (column + argument.length() + 1 > LINE_LENGTH) {
+					formatted.append(lineSeparator);
+					appendIndentation(formatted, depth + 2);
+					column = (depth + 2) * TAB_SIZE;
+				}
+				formatted.append(argument).append(')');
+				column += argument.length() + 1;
+			}
+			formatted.append(separator);
+			column++;
+			if (separator.equals(";") || i + 1 == end
+					|| !ENUM_CONSTANT.matcher(lines[i + 1].trim()).matches()) {
+				formatted.append(lineSeparator);
+				return i;
+			}
+			i++;
+		}
+	}
+
+	/**
+	 * Append a code line, unless JDT would wrap it.
+	 *
+	 * @return false if the line is too long
+	 */
+	private boolean appendCode(StringBuilder formatted, int depth, String line,
+			String lineSeparator) {
+		if (depth * TAB_SIZE + line.length() > LINE_LENGTH) {
+			return false;
+		}
+		appendLine(formatted, depth, line, lineSeparator);
+		return true;
+	}
+
+	private void appendLine(StringBuilder formatted, int depth, String line,
+			String lineSeparator) {
+		appendIndentation(formatted, depth);
+		formatted.append(line).append(lineSeparator);
+	}
+
+	private void appendIndentation(StringBuilder formatted, int depth) {
+		for (int i = 0; i < depth; i++) {
+			formatted.append('\t');
+		}
+	}
+
+	/**
+	 * Operands joined by binary operators. An operand is a literal, a name, an
+	 * array element, an object creation or a chain of calls, optionally cast
+	 * to a primitive type.
+	 *
+	 * @param depth
+	 *            how deep the arguments of calls may contain calls again
+	 */
+	private static String expression(int depth) {
+		String argument = depth == 0 ? SIMPLE_ARGUMENT : expression(depth - 1);
+		String operand = CAST + "?(?:new " + TYPE + arguments(argument) + "|"
+				+ call(argument) + "|" + QUALIFIED_NAME + "(?:\\["
+				+ SIMPLE_ARGUMENT + "\\])?|" + LITERAL + ")";
+		return "(?:" + operand + "(?: " + OPERATOR + " " + operand + ")*+)";
+	}
+
+	/**
+	 * A call followed by any number of calls on its result.
+	 */
+	private static String call(String argument) {
+		return QUALIFIED_NAME + arguments(argument) + "(?:\\." + ID
+				+ arguments(argument) + ")*+";
+	}
+
+	/**
+	 * The parenthesized, comma separated arguments of a call.
+	 */
+	private static String arguments(String argument) {
+		return "\\((?:(?:" + argument + ")(?:, (?:" + argument + "))*)?\\)";
+	}
+
+	private static String[] splitLines(String source) {
+		List<String> lines = new ArrayList<String>(source.length() / 32);
+		int start = 0;
+		for (int i = source.indexOf('\n'); i >= 0; i = source.indexOf('\n',
+				start)) {
+			int lineEnd = i > start && source.charAt(i - 1) == '\r' ? i - 1
+					: i;
+			lines.add(source.substring(start, lineEnd));
+			start = i + 1;
+		}
+		return lines.toArray(new String[lines.size()]);
+	}
+
+	private static boolean isSpace(char c) {
+		return c == ' ' || c == '\t';
+	}
+}
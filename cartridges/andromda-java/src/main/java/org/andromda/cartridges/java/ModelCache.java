@@ -0,0 +1,366 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.BinaryResourceImpl;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+
+/**
+ * Cache of loaded UML models in the EMF binary resource format, which loads
+ * several times faster than XMI. The model and all the profiles it references
+ * from the file system are cached together, each keyed by the SHA-1 hash of
+ * its source file. If any of the source files changed, the whole cache is
+ * stale and the model has to be loaded from XMI again.
+ *
+ * <p>
+ * Several models can share a cache directory. The index and the binary files
+ * of a model are named after the SHA-1 hash of its URI, so every model keeps
+ * its own cache.
+ * </p>
+ *
+ * <p>
+ * The binary format refers to objects of other resources by their URI
+ * fragment, which for XMI resources is the xmi:id. The cached resources
+ * therefore store the xmi:ids of their objects and resolve them the same way
+ * the XMI resources did, so the cached resources can refer to each other and
+ * to the XMI resources of the UML libraries.
+ * </p>
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class ModelCache {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final String INDEX_EXTENSION = ".properties";
+
+	private static final String MODEL_KEY = "model";
+
+	private static final String RESOURCE_KEY = "resource.";
+
+	private static final String URI_SUFFIX = ".uri";
+
+	private static final String HASH_SUFFIX = ".sha1";
+
+	private static final String BINARY_EXTENSION = ".bin";
+
+	private final File directory;
+
+	/**
+	 * Create a cache in the given directory.
+	 *
+	 * @param directory
+	 *            the cache directory, usually below the build output
+	 */
+	public ModelCache(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Load a model from the cache.
+	 *
+	 * @param resourceSet
+	 *            an empty resource set to load into
+	 * @param modelURI
+	 *            the URI of the model file
+	 * @return the resource of the model, null if the model is not cached or
+	 *         any of its source files changed
+	 * @throws IOException
+	 *             if the cache cannot be read
+	 */
+	public Resource load(ResourceSet resourceSet, URI modelURI)
+			throws IOException {
+		File indexFile = getIndexFile(modelURI);
+		if (!indexFile.isFile()) {
+			return null;
+		}
+		Properties index = new Properties();
+		InputStream in = new FileInputStream(indexFile);
+		try {
+			index.load(in);
+		} finally {
+			in.close();
+		}
+		if (!modelURI.toString().equals(index.getProperty(MODEL_KEY))) {
+			return null;
+		}
+
+		// Check all sources before loading anything
+		String key = getKey(modelURI);
+		List<CachedResource> resources = new ArrayList<CachedResource>();
+		for (int i = 0; index.containsKey(RESOURCE_KEY + i + URI_SUFFIX); i++) {
+			URI uri = URI.createURI(index.getProperty(RESOURCE_KEY + i
+					+ URI_SUFFIX));
+			File source = new File(uri.toFileString());
+			File binary = getBinaryFile(key, i);
+			if (!source.isFile()
+					|| !binary.isFile()
+					|| !hash(source).equals(
+							index.getProperty(RESOURCE_KEY + i + HASH_SUFFIX))) {
+				return null;
+			}
+			resources.add(new CachedResource(uri, binary));
+		}
+
+		// The resources are loaded on demand, in the order they are needed
+		resourceSet.getResources().addAll(resources);
+		return resourceSet.getResource(modelURI, true);
+	}
+
+	/**
+	 * Write the model and the resources it references from the file system to
+	 * the cache. All references must have been resolved before.
+	 *
+	 * @param resourceSet
+	 *            the resource set the model was loaded into
+	 * @param modelURI
+	 *            the URI of the model file
+	 * @throws IOException
+	 *             if the cache cannot be written
+	 */
+	public void save(ResourceSet resourceSet, URI modelURI)
+			throws IOException {
+		directory.mkdirs();
+		// Without index the cache is stale while it is written
+		File indexFile = getIndexFile(modelURI);
+		if (indexFile.exists() && !indexFile.delete()) {
+			throw new IOException("Cannot delete " + indexFile);
+		}
+
+		String key = getKey(modelURI);
+		Properties index = new Properties();
+		index.setProperty(MODEL_KEY, modelURI.toString());
+		int i = 0;
+		for (Resource resource : resourceSet.getResources()) {
+			URI uri = resource.getURI();
+			if (!uri.isFile() || !(resource instanceof XMLResource)) {
+				continue;
+			}
+			CachedResource.save((XMLResource) resource,
+					getBinaryFile(key, i));
+			index.setProperty(RESOURCE_KEY + i + URI_SUFFIX, uri.toString());
+			index.setProperty(RESOURCE_KEY + i + HASH_SUFFIX,
+					hash(new File(uri.toFileString())));
+			i++;
+		}
+
+		OutputStream out = new FileOutputStream(indexFile);
+		try {
+			index.store(out, "Generated by KissMDA - Andromda Java Cartridge");
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * The index file of a model in the cache directory.
+	 *
+	 * @param modelURI
+	 *            the URI of the model file
+	 * @return the index file, which exists only while the model is cached
+	 */
+	public File getIndexFile(URI modelURI) {
+		return new File(directory, getKey(modelURI) + INDEX_EXTENSION);
+	}
+
+	private File getBinaryFile(String key, int i) {
+		return new File(directory, key + "-" + i + BINARY_EXTENSION);
+	}
+
+	private static String getKey(URI modelURI) {
+		MessageDigest digest = GenerationManifest.createDigest();
+		digest.update(modelURI.toString().getBytes(UTF_8));
+		return GenerationManifest.toHex(digest.digest());
+	}
+
+	private static String hash(File file) throws IOException {
+		MessageDigest digest = GenerationManifest.createDigest();
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[8192];
+			for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+				digest.update(buffer, 0, read);
+			}
+		} finally {
+			in.close();
+		}
+		return GenerationManifest.toHex(digest.digest());
+	}
+
+	/**
+	 * Binary resource which keeps the xmi:ids of the XMI resource it was saved
+	 * from. The ids are written in front of the binary content, per root
+	 * object in the order of its contents tree.
+	 */
+	private static final class CachedResource extends BinaryResourceImpl {
+
+		private final File binary;
+
+		private final Map<String, EObject> idToEObject = new HashMap<String, EObject>();
+
+		private final Map<EObject, String> eObjectToId = new HashMap<EObject, String>();
+
+		private CachedResource(URI uri, File binary) {
+			super(uri);
+			this.binary = binary;
+		}
+
+		private static void save(XMLResource resource, File binary)
+				throws IOException {
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(binary)));
+			try {
+				List<EObject> roots = resource.getContents();
+				out.writeInt(roots.size());
+				for (EObject root : roots) {
+					List<String> ids = new ArrayList<String>();
+					ids.add(resource.getID(root));
+					for (Iterator<EObject> i = root.eAllContents(); i.hasNext();) {
+						ids.add(resource.getID(i.next()));
+					}
+					out.writeInt(ids.size());
+					for (String id : ids) {
+						out.writeUTF(id == null ? "" : id);
+					}
+				}
+				new EObjectOutputStream(out, null).saveResource(resource);
+			} finally {
+				out.close();
+			}
+		}
+
+		@Override
+		public void load(Map<?, ?> options) throws IOException {
+			if (!isLoaded) {
+				InputStream in = new FileInputStream(binary);
+				try {
+					load(in, options);
+				} finally {
+					in.close();
+				}
+			}
+		}
+
+		@Override
+		protected void doLoad(InputStream inputStream, Map<?, ?> options)
+				throws IOException {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(
+					inputStream));
+			List<String[]> ids = new ArrayList<String[]>();
+			for (int roots = in.readInt(); roots > 0; roots--) {
+				String[] rootIds = new String[in.readInt()];
+				for (int i = 0; i < rootIds.length; i++) {
+					rootIds[i] = in.readUTF();
+				}
+				ids.add(rootIds);
+			}
+			new IdInputStream(in, options, ids).loadResource(this);
+		}
+
+		@Override
+		public EObject getEObject(String uriFragment) {
+			EObject eObject = idToEObject.get(uriFragment);
+			return eObject != null ? eObject : super.getEObject(uriFragment);
+		}
+
+		@Override
+		public String getURIFragment(EObject eObject) {
+			String id = eObjectToId.get(eObject);
+			return id != null ? id : super.getURIFragment(eObject);
+		}
+
+		private void setIds(EObject root, String[] ids) {
+			int i = 0;
+			setId(root, ids[i++]);
+			for (Iterator<EObject> contents = root.eAllContents(); contents
+					.hasNext();) {
+				setId(contents.next(), ids[i++]);
+			}
+		}
+
+		private void setId(EObject eObject, String id) {
+			if (id.length() > 0) {
+				idToEObject.put(id, eObject);
+				eObjectToId.put(eObject, id);
+			}
+		}
+
+		/**
+		 * Assigns the ids of each root object as soon as it is loaded. The
+		 * contents of a resource are only added once all of them are loaded,
+		 * but stereotype applications need the profile EPackage defined by an
+		 * earlier root of the same resource.
+		 */
+		private final class IdInputStream extends EObjectInputStream {
+
+			private final List<String[]> ids;
+
+			private int depth;
+
+			private int root;
+
+			private IdInputStream(InputStream inputStream, Map<?, ?> options,
+					List<String[]> ids) throws IOException {
+				super(inputStream, options);
+				this.ids = ids;
+			}
+
+			@Override
+			public InternalEObject loadEObject() throws IOException {
+				depth++;
+				InternalEObject eObject;
+				try {
+					eObject = super.loadEObject();
+				} finally {
+					depth--;
+				}
+				if (depth == 0) {
+					setIds(eObject, ids.get(root++));
+				}
+				return eObject;
+			}
+		}
+	}
+}
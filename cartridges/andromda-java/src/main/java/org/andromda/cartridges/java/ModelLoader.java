@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.uml2.uml.UMLPackage;
+import org.eclipse.uml2.uml.resource.UMLResource;
+
+/**
+ * Loads UML models, optionally through a {@link ModelCache}. Every model is
+ * loaded into a resource set of its own, registered the same way as the
+ * ReaderWriter of KissMDA does.
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class ModelLoader {
+
+	private static final Logger logger = Logger.getLogger(ModelLoader.class
+			.getName());
+
+	private static final String PATHMAP_SCHEME = "pathmap";
+
+	private static final String PROFILE_FILE_EXTENSION = ".profile.uml";
+
+	/**
+	 * Create a resource set which can load UML models and the UML libraries,
+	 * metamodels and profiles referenced by pathmap.
+	 *
+	 * @return the resource set
+	 */
+	public ResourceSet createResourceSet() {
+		ResourceSet resourceSet = new ResourceSetImpl();
+		register(resourceSet);
+		return resourceSet;
+	}
+
+	/**
+	 * Create a resource set for one model of several which share their
+	 * profiles. Profiles and everything referenced by pathmap are loaded into
+	 * the shared resource set and taken from there, all other resources are
+	 * loaded into the new resource set, so unloading it unloads everything
+	 * that belongs to the model alone.
+	 *
+	 * @param profiles
+	 *            the resource set holding the shared profiles, its resources
+	 *            are never modified
+	 * @return the resource set of the model
+	 */
+	public ResourceSet createResourceSet(final ResourceSet profiles) {
+		ResourceSet resourceSet = new ResourceSetImpl() {
+			@Override
+			protected Resource delegatedGetResource(URI uri,
+					boolean loadOnDemand) {
+				if (isShared(uri)) {
+					return profiles.getResource(uri, loadOnDemand);
+				}
+				return super.delegatedGetResource(uri, loadOnDemand);
+			}
+		};
+		register(resourceSet);
+		return resourceSet;
+	}
+
+	/**
+	 * Whether a resource is shared between the models: profiles, recognized by
+	 * their file extension, and the UML libraries, metamodels and profiles.
+	 */
+	private static boolean isShared(URI uri) {
+		String lastSegment = uri.lastSegment();
+		return PATHMAP_SCHEME.equals(uri.scheme()) || lastSegment != null
+				&& lastSegment.endsWith(PROFILE_FILE_EXTENSION);
+	}
+
+	private void register(ResourceSet resourceSet) {
+		resourceSet.getPackageRegistry().put(UMLPackage.eNS_URI,
+				UMLPackage.eINSTANCE);
+		resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap()
+				.put(UMLResource.FILE_EXTENSION, UMLResource.Factory.INSTANCE);
+
+		// The pathmaps point into the UML2 resources jar
+		URL url = UMLResource.class
+				.getResource("/libraries/UMLPrimitiveTypes.library.uml");
+		if (url != null) {
+			String location = url.toString();
+			URI base = URI.createURI(location.substring(0,
+					location.lastIndexOf("libraries")));
+			Map<URI, URI> uriMap = resourceSet.getURIConverter().getURIMap();
+			uriMap.put(URI.createURI(UMLResource.LIBRARIES_PATHMAP),
+					base.appendSegment("libraries").appendSegment(""));
+			uriMap.put(URI.createURI(UMLResource.METAMODELS_PATHMAP),
+					base.appendSegment("metamodels").appendSegment(""));
+			uriMap.put(URI.createURI(UMLResource.PROFILES_PATHMAP),
+					base.appendSegment("profiles").appendSegment(""));
+		}
+	}
+
+	/**
+	 * Load a UML model from its XMI file.
+	 *
+	 * @param model
+	 *            the model file
+	 * @return the root package of the model
+	 */
+	public org.eclipse.uml2.uml.Package load(File model) {
+		ResourceSet resourceSet = createResourceSet();
+		Resource resource = resourceSet.getResource(getURI(model), true);
+		return getRootPackage(resource);
+	}
+
+	/**
+	 * Load a UML model from its XMI file into a resource set, together with
+	 * the profiles and everything else it references.
+	 *
+	 * @param resourceSet
+	 *            the resource set to load into
+	 * @param model
+	 *            the model file
+	 * @return the resource of the model
+	 */
+	public Resource load(ResourceSet resourceSet, File model) {
+		Resource resource = resourceSet.getResource(getURI(model), true);
+		EcoreUtil.resolveAll(resourceSet);
+		return resource;
+	}
+
+	/**
+	 * Load a UML model from the cache if none of the files it was loaded from
+	 * changed, otherwise from its XMI file. In the latter case the model and
+	 * all the profiles it references are written to the cache for the next
+	 * run.
+	 *
+	 * @param model
+	 *            the model file
+	 * @param cacheDirectory
+	 *            the directory of the cache, null to load without cache
+	 * @return the root package of the model
+	 * @throws IOException
+	 *             if the cache cannot be written
+	 */
+	public org.eclipse.uml2.uml.Package load(File model, File cacheDirectory)
+			throws IOException {
+		if (cacheDirectory == null) {
+			return load(model);
+		}
+		URI uri = getURI(model);
+		ModelCache cache = new ModelCache(cacheDirectory);
+		try {
+			Resource resource = cache.load(createResourceSet(), uri);
+			if (resource != null) {
+				logger.log(Level.FINE, "Model loaded from cache: " + uri);
+				return getRootPackage(resource);
+			}
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Cannot load the model from the cache "
+					+ cacheDirectory + ", loading " + uri, e);
+		} catch (RuntimeException e) {
+			logger.log(Level.WARNING, "Cannot load the model from the cache "
+					+ cacheDirectory + ", loading " + uri, e);
+		}
+
+		ResourceSet resourceSet = createResourceSet();
+		Resource resource = load(resourceSet, model);
+		cache.save(resourceSet, uri);
+		return getRootPackage(resource);
+	}
+
+	/**
+	 * The URI a model file is loaded with.
+	 *
+	 * @param model
+	 *            the model file
+	 * @return the absolute file URI
+	 */
+	public URI getURI(File model) {
+		return URI.createFileURI(model.getAbsolutePath());
+	}
+
+	/**
+	 * The root package of a loaded model.
+	 *
+	 * @param resource
+	 *            the resource of the model
+	 * @return the first package of the resource, null if there is none
+	 */
+	public org.eclipse.uml2.uml.Package getRootPackage(Resource resource) {
+		return (org.eclipse.uml2.uml.Package) EcoreUtil.getObjectByType(
+				resource.getContents(), UMLPackage.Literals.PACKAGE);
+	}
+}
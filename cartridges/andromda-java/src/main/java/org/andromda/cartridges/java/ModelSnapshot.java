@@ -0,0 +1,529 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.uml2.uml.Classifier;
+import org.eclipse.uml2.uml.Comment;
+import org.eclipse.uml2.uml.NamedElement;
+import org.eclipse.uml2.uml.Namespace;
+import org.eclipse.uml2.uml.Property;
+import org.eclipse.uml2.uml.Stereotype;
+import org.eclipse.uml2.uml.Type;
+import org.eclipse.uml2.uml.ValueSpecification;
+
+/**
+ * An immutable copy of the parts of a UML model the cartridge generates
+ * from, extracted in one pass and independent of EMF. Once extracted, the
+ * resource set of the model can be unloaded, and the snapshot can be read
+ * from any number of threads.
+ *
+ * <p>
+ * The snapshot is a set of int tables. Elements are the classifiers added
+ * and the namespaces enclosing them, each linked to its namespace by index.
+ * Every string is stored once in a pool and referenced by its index, only
+ * the stereotypes given to the {@link Builder} are recorded.
+ * </p>
+ *
+ * <pre>
+ * ModelSnapshot.Builder builder = new ModelSnapshot.Builder(STEREOTYPE_ENUMERATION);
+ * int element = builder.add(clazz, fullPackageName);
+ * ModelSnapshot snapshot = builder.build();
+ * String name = snapshot.getName(element);
+ * </pre>
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class ModelSnapshot {
+
+	/**
+	 * The index of a missing element or string.
+	 */
+	public static final int NONE = -1;
+
+	private static final String SEPARATOR = "::";
+
+	private final String[] strings;
+
+	private final String[] stereotypes;
+
+	private final int[] elementNames;
+
+	private final int[] elementParents;
+
+	private final int[] elementStereotypes;
+
+	private final int[] elementPackageNames;
+
+	private final int[] elementComments;
+
+	private final int[] elementAttributeStarts;
+
+	private final int[] elementAttributeEnds;
+
+	private final int[] attributeNames;
+
+	private final int[] attributeTypeNames;
+
+	private final int[] attributeTypeQualifiedNames;
+
+	private final int[] attributeLowers;
+
+	private final int[] attributeDefaults;
+
+	private final int[] attributeComments;
+
+	private final int[] elementCommentBodies;
+
+	private final int[] attributeCommentBodies;
+
+	private ModelSnapshot(Builder builder) {
+		strings = builder.strings.toArray(new String[builder.strings.size()]);
+		stereotypes = builder.stereotypes;
+		elementNames = builder.elementNames.toArray();
+		elementParents = builder.elementParents.toArray();
+		elementStereotypes = builder.elementStereotypes.toArray();
+		elementPackageNames = builder.elementPackageNames.toArray();
+		elementComments = builder.elementComments.toArray();
+		elementAttributeStarts = builder.elementAttributeStarts.toArray();
+		elementAttributeEnds = builder.elementAttributeEnds.toArray();
+		attributeNames = builder.attributeNames.toArray();
+		attributeTypeNames = builder.attributeTypeNames.toArray();
+		attributeTypeQualifiedNames = builder.attributeTypeQualifiedNames
+				.toArray();
+		attributeLowers = builder.attributeLowers.toArray();
+		attributeDefaults = builder.attributeDefaults.toArray();
+		attributeComments = builder.attributeComments.toArray();
+		elementCommentBodies = builder.elementCommentBodies.toArray();
+		attributeCommentBodies = builder.attributeCommentBodies.toArray();
+	}
+
+	/**
+	 * @return the number of elements
+	 */
+	public int getElementCount() {
+		return elementNames.length;
+	}
+
+	/**
+	 * @return the number of distinct strings in the pool
+	 */
+	public int getStringCount() {
+		return strings.length;
+	}
+
+	/**
+	 * @param element
+	 *            the index of the element
+	 * @return the name of the element, null if it has none
+	 */
+	public String getName(int element) {
+		return string(elementNames[element]);
+	}
+
+	/**
+	 * @param element
+	 *            the index of the element
+	 * @return the index of the namespace of the element, {@link #NONE} for
+	 *         the root
+	 */
+	public int getParent(int element) {
+		return elementParents[element];
+	}
+
+	/**
+	 * The qualified name of an element, built like UML2 builds it from the
+	 * names of the enclosing namespaces.
+	 *
+	 * @param element
+	 *            the index of the element
+	 * @return the qualified name, null if the element or one of its
+	 *         namespaces has no name
+	 */
+	public String getQualifiedName(int element) {
+		String name = getName(element);
+		if (name == null || name.isEmpty()) {
+			return null;
+		}
+		int parent = elementParents[element];
+		if (parent == NONE) {
+			return name;
+		}
+		String parentName = getQualifiedName(parent);
+		return parentName == null ? null : parentName + SEPARATOR + name;
+	}
+
+	/**
+	 * Check whether a stereotype is applied to an element. Only the
+	 * stereotypes the snapshot was built with are known.
+	 *
+	 * @param element
+	 *            the index of the element
+	 * @param name
+	 *            the name of the stereotype, as given to the builder
+	 * @return true if the stereotype is known and applied
+	 */
+	public boolean isApplied(int element, String name) {
+		for (int i = 0; i < stereotypes.length; i++) {
+			if (stereotypes[i].equals(name)) {
+				return (elementStereotypes[element] & (1 << i)) != 0;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param element
+	 *            the index of the element
+	 * @return the Java package a classifier is generated into, null for a
+	 *         namespace
+	 */
+	public String getPackageName(int element) {
+		return string(elementPackageNames[element]);
+	}
+
+	/**
+	 * @param element
+	 *            the index of the element
+	 * @return the number of the comments owned by the element
+	 */
+	public int getCommentCount(int element) {
+		return elementComments[element + 1] - elementComments[element];
+	}
+
+	/**
+	 * @param element
+	 *            the index of the element
+	 * @param index
+	 *            the index of the comment among the ones of the element
+	 * @return the body of the comment
+	 */
+	public String getComment(int element, int index) {
+		return string(elementCommentBodies[elementComments[element] + index]);
+	}
+
+	/**
+	 * @param element
+	 *            the index of the element
+	 * @return the index of the first attribute of the element
+	 */
+	public int getAttributeStart(int element) {
+		return elementAttributeStarts[element];
+	}
+
+	/**
+	 * @param element
+	 *            the index of the element
+	 * @return the index after the last attribute of the element
+	 */
+	public int getAttributeEnd(int element) {
+		return elementAttributeEnds[element];
+	}
+
+	/**
+	 * @param attribute
+	 *            the index of the attribute
+	 * @return the name of the attribute
+	 */
+	public String getAttributeName(int attribute) {
+		return string(attributeNames[attribute]);
+	}
+
+	/**
+	 * @param attribute
+	 *            the index of the attribute
+	 * @return the name of the type of the attribute, null if it has no type
+	 */
+	public String getAttributeTypeName(int attribute) {
+		return string(attributeTypeNames[attribute]);
+	}
+
+	/**
+	 * @param attribute
+	 *            the index of the attribute
+	 * @return the qualified name of the type of the attribute, null if it has
+	 *         no type
+	 */
+	public String getAttributeTypeQualifiedName(int attribute) {
+		return string(attributeTypeQualifiedNames[attribute]);
+	}
+
+	/**
+	 * @param attribute
+	 *            the index of the attribute
+	 * @return the lower bound of the multiplicity of the attribute, 0 if it
+	 *         is nullable
+	 */
+	public int getAttributeLower(int attribute) {
+		return attributeLowers[attribute];
+	}
+
+	/**
+	 * @param attribute
+	 *            the index of the attribute
+	 * @return the string form of the default value of the attribute, null if
+	 *         it has none
+	 */
+	public String getAttributeDefault(int attribute) {
+		return string(attributeDefaults[attribute]);
+	}
+
+	/**
+	 * @param attribute
+	 *            the index of the attribute
+	 * @return the number of the comments owned by the attribute
+	 */
+	public int getAttributeCommentCount(int attribute) {
+		return attributeComments[attribute + 1] - attributeComments[attribute];
+	}
+
+	/**
+	 * @param attribute
+	 *            the index of the attribute
+	 * @param index
+	 *            the index of the comment among the ones of the attribute
+	 * @return the body of the comment
+	 */
+	public String getAttributeComment(int attribute, int index) {
+		return string(attributeCommentBodies[attributeComments[attribute]
+				+ index]);
+	}
+
+	private String string(int index) {
+		return index == NONE ? null : strings[index];
+	}
+
+	/**
+	 * Extracts classifiers into a snapshot. A builder is used by one thread.
+	 */
+	public static final class Builder {
+
+		private final String[] stereotypes;
+
+		private final Map<String, Integer> pool = new HashMap<String, Integer>();
+
+		private final List<String> strings = new ArrayList<String>();
+
+		private final Map<NamedElement, Integer> elements = new IdentityHashMap<NamedElement, Integer>();
+
+		private final IntArray elementNames = new IntArray();
+
+		private final IntArray elementParents = new IntArray();
+
+		private final IntArray elementStereotypes = new IntArray();
+
+		private final IntArray elementPackageNames = new IntArray();
+
+		private final IntArray elementComments = new IntArray();
+
+		private final IntArray elementAttributeStarts = new IntArray();
+
+		private final IntArray elementAttributeEnds = new IntArray();
+
+		/**
+		 * The elements added as classifiers, the others were only added as
+		 * the namespace of one.
+		 */
+		private final BitSet classifiers = new BitSet();
+
+		private final IntArray attributeNames = new IntArray();
+
+		private final IntArray attributeTypeNames = new IntArray();
+
+		private final IntArray attributeTypeQualifiedNames = new IntArray();
+
+		private final IntArray attributeLowers = new IntArray();
+
+		private final IntArray attributeDefaults = new IntArray();
+
+		private final IntArray attributeComments = new IntArray();
+
+		private final IntArray elementCommentBodies = new IntArray();
+
+		private final IntArray attributeCommentBodies = new IntArray();
+
+		/**
+		 * Create a builder.
+		 *
+		 * @param stereotypes
+		 *            the simple or qualified names of the stereotypes to
+		 *            record, matched like {@link StereotypeFinder} does, at
+		 *            most 32
+		 */
+		public Builder(String... stereotypes) {
+			if (stereotypes.length > Integer.SIZE) {
+				throw new IllegalArgumentException("Too many stereotypes: "
+						+ stereotypes.length);
+			}
+			this.stereotypes = stereotypes.clone();
+			elementComments.add(0);
+			attributeComments.add(0);
+		}
+
+		/**
+		 * Add a classifier with its attributes and the namespaces enclosing
+		 * it. A classifier which was added before is not added again, one
+		 * added as the namespace of a nested classifier gets its attributes
+		 * and package now.
+		 *
+		 * @param clazz
+		 *            the UML classifier
+		 * @param packageName
+		 *            the Java package the classifier is generated into
+		 * @return the index of the classifier in the snapshot
+		 */
+		public int add(Classifier clazz, String packageName) {
+			Integer known = elements.get(clazz);
+			int element = known == null ? addElement(clazz) : known;
+			if (classifiers.get(element)) {
+				return element;
+			}
+			classifiers.set(element);
+			elementPackageNames.set(element, intern(packageName));
+			// The attributes of a classifier are contiguous, whenever it is
+			// added
+			elementAttributeStarts.set(element, attributeNames.size());
+			for (Property attribute : clazz.getAttributes()) {
+				addAttribute(attribute);
+			}
+			elementAttributeEnds.set(element, attributeNames.size());
+			return element;
+		}
+
+		/**
+		 * @return the snapshot of everything added so far
+		 */
+		public ModelSnapshot build() {
+			return new ModelSnapshot(this);
+		}
+
+		private int addNamespace(Namespace namespace) {
+			Integer known = elements.get(namespace);
+			return known == null ? addElement(namespace) : known;
+		}
+
+		/**
+		 * Add an element with no package and no attributes, which is all a
+		 * namespace has in the snapshot.
+		 */
+		private int addElement(NamedElement namedElement) {
+			// The namespaces get lower indexes than the elements they contain
+			Namespace namespace = namedElement.getNamespace();
+			int parent = namespace == null ? NONE : addNamespace(namespace);
+			int element = elementNames.size();
+			elements.put(namedElement, element);
+			elementNames.add(intern(namedElement.getName()));
+			elementParents.add(parent);
+			elementStereotypes.add(stereotypes(namedElement));
+			elementPackageNames.add(NONE);
+			elementAttributeStarts.add(attributeNames.size());
+			elementAttributeEnds.add(attributeNames.size());
+			addComments(namedElement.getOwnedComments(), elementCommentBodies);
+			elementComments.add(elementCommentBodies.size());
+			return element;
+		}
+
+		private void addAttribute(Property attribute) {
+			attributeNames.add(intern(attribute.getName()));
+			Type type = attribute.getType();
+			attributeTypeNames.add(type == null ? NONE : intern(type
+					.getName()));
+			attributeTypeQualifiedNames.add(type == null ? NONE : intern(type
+					.getQualifiedName()));
+			attributeLowers.add(attribute.getLower());
+			ValueSpecification defaultValue = attribute.getDefaultValue();
+			attributeDefaults.add(defaultValue == null ? NONE
+					: intern(defaultValue.stringValue()));
+			addComments(attribute.getOwnedComments(), attributeCommentBodies);
+			attributeComments.add(attributeCommentBodies.size());
+		}
+
+		private void addComments(List<Comment> ownedComments, IntArray bodies) {
+			for (Comment comment : ownedComments) {
+				bodies.add(intern(comment.getBody()));
+			}
+		}
+
+		private int stereotypes(NamedElement element) {
+			int mask = 0;
+			if (stereotypes.length == 0) {
+				return mask;
+			}
+			for (Stereotype stereotype : element.getAppliedStereotypes()) {
+				for (int i = 0; i < stereotypes.length; i++) {
+					if (StereotypeFinder.matches(stereotype, stereotypes[i])) {
+						mask |= 1 << i;
+					}
+				}
+			}
+			return mask;
+		}
+
+		private int intern(String string) {
+			if (string == null) {
+				return NONE;
+			}
+			Integer index = pool.get(string);
+			if (index == null) {
+				index = strings.size();
+				pool.put(string, index);
+				strings.add(string);
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * A growable array of ints, so that the tables are built without boxing.
+	 */
+	private static final class IntArray {
+
+		private int[] values = new int[16];
+
+		private int size;
+
+		void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		void set(int index, int value) {
+			values[index] = value;
+		}
+
+		int size() {
+			return size;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+}
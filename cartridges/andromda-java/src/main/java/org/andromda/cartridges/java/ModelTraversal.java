@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.uml2.uml.Classifier;
+import org.eclipse.uml2.uml.Element;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+
+/**
+ * Lazy traversal of the elements owned by a UML element, in document order.
+ * Unlike {@link Element#allOwnedElements()} no list of the elements is built,
+ * the elements are read from the containment lists while iterating. Only the
+ * path from the root to the current element is kept in memory.
+ *
+ * <p>
+ * Two predicates shape the traversal: elements rejected by the
+ * <code>descend</code> predicate are returned but their owned elements are
+ * never visited, elements rejected by the <code>include</code> predicate are
+ * visited but not returned.
+ * </p>
+ *
+ * <pre>
+ * for (Element element : ModelTraversal.of(rootPackage)
+ * 		.descendInto(ModelTraversal.PACKAGES_AND_CLASSIFIERS)
+ * 		.include(ModelTraversal.PACKAGES_AND_CLASSIFIERS)) {
+ * 	...
+ * }
+ * </pre>
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class ModelTraversal implements Iterable<Element> {
+
+	/**
+	 * Accepts packages and classifiers only, the elements a cartridge
+	 * generates code for. Operations, properties, comments and the like are
+	 * rejected.
+	 */
+	public static final Predicate<Element> PACKAGES_AND_CLASSIFIERS = Predicates
+			.or(Predicates.instanceOf(org.eclipse.uml2.uml.Package.class),
+					Predicates.instanceOf(Classifier.class));
+
+	private final Element root;
+
+	private final Predicate<? super Element> descend;
+
+	private final Predicate<? super Element> include;
+
+	/**
+	 * Traverse all elements owned by the root, directly or indirectly. The
+	 * root itself is not returned.
+	 *
+	 * @param root
+	 *            the element to start from
+	 * @return the traversal
+	 */
+	public static ModelTraversal of(Element root) {
+		return new ModelTraversal(root, Predicates.alwaysTrue(),
+				Predicates.alwaysTrue());
+	}
+
+	private ModelTraversal(Element root, Predicate<? super Element> descend,
+			Predicate<? super Element> include) {
+		this.root = root;
+		this.descend = descend;
+		this.include = include;
+	}
+
+	/**
+	 * Only visit the owned elements of elements accepted by the predicate.
+	 *
+	 * @param predicate
+	 *            accepts the elements to descend into
+	 * @return a new traversal
+	 */
+	public ModelTraversal descendInto(Predicate<? super Element> predicate) {
+		return new ModelTraversal(root, predicate, include);
+	}
+
+	/**
+	 * Only return elements accepted by the predicate.
+	 *
+	 * @param predicate
+	 *            accepts the elements to return
+	 * @return a new traversal
+	 */
+	public ModelTraversal include(Predicate<? super Element> predicate) {
+		return new ModelTraversal(root, descend, predicate);
+	}
+
+	@Override
+	public Iterator<Element> iterator() {
+		return new TraversalIterator();
+	}
+
+	/**
+	 * Depth first iterator over the containment lists. EMF keeps contents in
+	 * the order they are serialized in, which is the document order.
+	 */
+	private final class TraversalIterator implements Iterator<Element> {
+
+		private final Deque<Iterator<EObject>> path = new ArrayDeque<Iterator<EObject>>();
+
+		private Element next;
+
+		private TraversalIterator() {
+			path.push(root.eContents().iterator());
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (next == null && !path.isEmpty()) {
+				Iterator<EObject> contents = path.peek();
+				if (!contents.hasNext()) {
+					path.pop();
+					continue;
+				}
+				EObject eObject = contents.next();
+				// Skip annotations and other non UML contents
+				if (!(eObject instanceof Element)) {
+					continue;
+				}
+				Element element = (Element) eObject;
+				if (descend.apply(element)) {
+					path.push(element.eContents().iterator());
+				}
+				if (include.apply(element)) {
+					next = element;
+				}
+			}
+			return next != null;
+		}
+
+		@Override
+		public Element next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Element element = next;
+			next = null;
+			return element;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,272 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.inject.Inject;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+
+import de.crowdcode.kissmda.core.Context;
+import de.crowdcode.kissmda.core.TransformerException;
+
+/**
+ * Long running watch mode around the {@link JavaTransformer}. The model and
+ * its profiles are loaded once and kept in memory. Whenever one of their files
+ * changes, only that resource is loaded again and the model is transformed
+ * again. Together with the incremental generation of the transformer, only the
+ * classes of changed classifiers are generated.
+ *
+ * <p>
+ * {@link #watch(Context)} blocks until {@link #stop()} is called from another
+ * thread.
+ * </p>
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class ModelWatcher {
+
+	private static final Logger logger = Logger.getLogger(ModelWatcher.class
+			.getName());
+
+	/**
+	 * Editors often write a file in several steps, the changes are collected
+	 * until no event arrived for this time.
+	 */
+	private static final long QUIET_PERIOD_MILLIS = 50;
+
+	@Inject
+	private JavaTransformer javaTransformer;
+
+	@Inject
+	private ModelLoader modelLoader;
+
+	private final AtomicInteger generations = new AtomicInteger();
+
+	private volatile WatchService watchService;
+
+	private volatile boolean stopped;
+
+	/**
+	 * Transform the model of the context, then watch its files and transform
+	 * it again on every change until stopped.
+	 *
+	 * @param context
+	 *            context object with the source model and the target directory
+	 * @throws IOException
+	 *             if the files cannot be watched
+	 */
+	public void watch(Context context) throws IOException {
+		File model = new File(context.getSourceModel());
+		URI modelURI = modelLoader.getURI(model);
+		ResourceSet resourceSet = modelLoader.createResourceSet();
+		Resource modelResource = modelLoader.load(resourceSet, model);
+
+		WatchService watchService = FileSystems.getDefault().newWatchService();
+		this.watchService = watchService;
+		try {
+			// Watch before generating, so no change is missed
+			Map<Path, WatchKey> keys = register(watchService, resourceSet,
+					new HashMap<Path, WatchKey>());
+			generate(context, modelResource);
+			while (!stopped) {
+				Set<Path> changedFiles = takeChangedFiles(watchService);
+				List<Resource> changedResources = getResources(resourceSet,
+						changedFiles);
+				if (changedResources.isEmpty()) {
+					continue;
+				}
+				long start = System.currentTimeMillis();
+				boolean loaded;
+				if (changedResources.size() == 1
+						&& changedResources.get(0) == modelResource) {
+					loaded = reload(resourceSet, modelResource);
+				} else {
+					// Stereotype applications of the model are instances of the
+					// profile, a changed profile needs everything reloaded
+					unload(resourceSet);
+					resourceSet = modelLoader.createResourceSet();
+					try {
+						modelResource = modelLoader.load(resourceSet, model);
+						loaded = true;
+					} catch (RuntimeException e) {
+						logger.log(Level.SEVERE, "Cannot load " + modelURI, e);
+						modelResource = resourceSet.getResource(modelURI, false);
+						loaded = false;
+					}
+					keys = register(watchService, resourceSet, keys);
+				}
+				if (!loaded) {
+					// Keep watching, the next save may fix the model
+					continue;
+				}
+				generate(context, modelResource);
+				logger.log(Level.INFO, "Regenerated " + modelURI + " in "
+						+ (System.currentTimeMillis() - start) + " ms");
+			}
+		} catch (ClosedWatchServiceException e) {
+			// Stopped
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			watchService.close();
+		}
+	}
+
+	/**
+	 * Stop watching. Can be called from any thread.
+	 */
+	public void stop() {
+		stopped = true;
+		WatchService watchService = this.watchService;
+		if (watchService != null) {
+			try {
+				watchService.close();
+			} catch (IOException e) {
+				logger.log(Level.WARNING, "Cannot close the watch service", e);
+			}
+		}
+	}
+
+	/**
+	 * The number of transformations run so far, including the first one.
+	 *
+	 * @return the number of transformations
+	 */
+	public int getGenerations() {
+		return generations.get();
+	}
+
+	private void generate(Context context, Resource modelResource) {
+		try {
+			javaTransformer.transform(context,
+					modelLoader.getRootPackage(modelResource));
+		} catch (TransformerException e) {
+			// Keep watching, the next save may fix the model
+			logger.log(Level.SEVERE, "Transformation failed", e);
+		} catch (RuntimeException e) {
+			logger.log(Level.SEVERE, "Transformation failed", e);
+		}
+		generations.incrementAndGet();
+	}
+
+	private boolean reload(ResourceSet resourceSet, Resource resource) {
+		resource.unload();
+		try {
+			resource.load(resourceSet.getLoadOptions());
+			return true;
+		} catch (IOException e) {
+			logger.log(Level.SEVERE, "Cannot load " + resource.getURI(), e);
+			return false;
+		}
+	}
+
+	private void unload(ResourceSet resourceSet) {
+		for (Resource resource : resourceSet.getResources()) {
+			resource.unload();
+		}
+		resourceSet.getResources().clear();
+	}
+
+	/**
+	 * Watch the directories of the file resources of a resource set. The
+	 * directories of the previous resource set which are no longer needed are
+	 * not watched any more.
+	 */
+	private Map<Path, WatchKey> register(WatchService watchService,
+			ResourceSet resourceSet, Map<Path, WatchKey> previousKeys)
+			throws IOException {
+		Set<Path> directories = new HashSet<Path>();
+		for (Resource resource : resourceSet.getResources()) {
+			if (resource.getURI().isFile()) {
+				directories.add(new File(resource.getURI().toFileString())
+						.getAbsoluteFile().getParentFile().toPath());
+			}
+		}
+		// Registering a directory twice returns the same key
+		Map<Path, WatchKey> keys = new HashMap<Path, WatchKey>();
+		for (Path directory : directories) {
+			keys.put(directory, directory.register(watchService,
+					ENTRY_MODIFY, ENTRY_CREATE));
+		}
+		for (Map.Entry<Path, WatchKey> entry : previousKeys.entrySet()) {
+			if (!keys.containsKey(entry.getKey())) {
+				entry.getValue().cancel();
+			}
+		}
+		return keys;
+	}
+
+	private Set<Path> takeChangedFiles(WatchService watchService)
+			throws InterruptedException {
+		Set<Path> changedFiles = new LinkedHashSet<Path>();
+		WatchKey key = watchService.take();
+		while (key != null) {
+			Path directory = (Path) key.watchable();
+			for (WatchEvent<?> event : key.pollEvents()) {
+				if (event.context() instanceof Path) {
+					changedFiles.add(directory.resolve((Path) event.context())
+							.toAbsolutePath());
+				}
+			}
+			key.reset();
+			key = watchService.poll(QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+		}
+		return changedFiles;
+	}
+
+	private List<Resource> getResources(ResourceSet resourceSet,
+			Set<Path> files) {
+		List<Resource> resources = new ArrayList<Resource>();
+		for (Path file : files) {
+			Resource resource = resourceSet.getResource(
+					URI.createFileURI(file.toString()), false);
+			if (resource != null && !resources.contains(resource)) {
+				resources.add(resource);
+			}
+		}
+		return resources;
+	}
+}
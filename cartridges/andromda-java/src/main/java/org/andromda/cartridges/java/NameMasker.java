@@ -1,11 +1,21 @@
 package org.andromda.cartridges.java;
 
 import java.text.Normalizer;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.lang3.StringUtils;
 
 /**
  * Provides the ability to <code>mask</code> names in a standard manner.
+ * <p>
+ * A mask name can be resolved once into a {@link Mask}. The names masked with
+ * a {@link Mask} are remembered, so masking the same name again costs a
+ * lookup. Instances are safe to share between threads.
+ * </p>
  *
  * @author Chad Brandon
  */
@@ -62,54 +72,271 @@ public class NameMasker
     public static final String NONE = "none";
 
     /**
-     * Returns the name with the appropriate <code>mask</code> applied. The mask, must match one of the valid mask
-     * properties or will be ignored.
-     *
-     * @param name the name to be masked
-     * @param mask the mask to apply
-     * @return the masked name.
+     * The most names remembered per mask. When a mask has remembered this
+     * many, it forgets them all and starts again.
      */
-    public String mask(String name, String mask)
+    public static final int MAX_CACHED_NAMES = 4096;
+
+    /**
+     * The first character which is not ASCII.
+     */
+    private static final char NON_ASCII = 0x80;
+
+    private static final int CASE_OFFSET = 'a' - 'A';
+
+    /**
+     * A mask resolved from its name.
+     */
+    public enum Mask
     {
-        mask = StringUtils.trimToEmpty(mask);
-        name = StringUtils.trimToEmpty(name);
-        if (!mask.equalsIgnoreCase(NONE))
+        UPPERCASE(NameMasker.UPPERCASE)
         {
-            if (mask.equalsIgnoreCase(UPPERCASE))
+            String apply(String name)
             {
-                name = name.toUpperCase();
+                return toUpperCase(name);
             }
-            else if (mask.equalsIgnoreCase(UNDERSCORE))
+        },
+        UNDERSCORE(NameMasker.UNDERSCORE)
+        {
+            String apply(String name)
             {
-                name = StringUtilsHelper.separate(name, "_");
+                return StringUtilsHelper.separate(name, "_");
             }
-            else if (mask.equalsIgnoreCase(UPPERUNDERSCORE))
+        },
+        UPPERUNDERSCORE(NameMasker.UPPERUNDERSCORE)
+        {
+            String apply(String name)
             {
-                name = StringUtilsHelper.separate(name, "_").toUpperCase();
+                return toUpperCase(StringUtilsHelper.separate(name, "_"));
             }
-            else if (mask.equalsIgnoreCase(LOWERCASE))
+        },
+        LOWERCASE(NameMasker.LOWERCASE)
+        {
+            String apply(String name)
             {
-                name = name.toLowerCase();
+                return toLowerCase(name);
             }
-            else if (mask.equalsIgnoreCase(LOWERUNDERSCORE))
+        },
+        LOWERUNDERSCORE(NameMasker.LOWERUNDERSCORE)
+        {
+            String apply(String name)
             {
-                name = StringUtilsHelper.separate(name, "_").toLowerCase();
+                return toLowerCase(StringUtilsHelper.separate(name, "_"));
             }
-            else if (mask.equalsIgnoreCase(LOWERCAMELCASE))
+        },
+        UPPERCAMELCASE(NameMasker.UPPERCAMELCASE)
+        {
+            String apply(String name)
             {
-                name = StringUtilsHelper.lowerCamelCaseName(name);
+                return StringUtilsHelper.upperCamelCaseName(name);
             }
-            else if (mask.equalsIgnoreCase(UPPERCAMELCASE))
+        },
+        LOWERCAMELCASE(NameMasker.LOWERCAMELCASE)
+        {
+            String apply(String name)
             {
-                name = StringUtilsHelper.upperCamelCaseName(name);
+                return StringUtilsHelper.lowerCamelCaseName(name);
             }
-            else if (mask.equalsIgnoreCase(NOSPACE))
+        },
+        NOSPACE(NameMasker.NOSPACE)
+        {
+            String apply(String name)
+            {
+                return StringUtils.deleteWhitespace(name);
+            }
+        },
+        NOACCENT(NameMasker.NOACCENT)
+        {
+            String apply(String name)
+            {
+                return removeAccents(name);
+            }
+        },
+        NONE(NameMasker.NONE)
+        {
+            String apply(String name)
             {
-                name = StringUtils.deleteWhitespace(name);
+                return name;
             }
-            else if (mask.equalsIgnoreCase(NOACCENT))
+        };
+
+        private final String maskName;
+
+        private Mask(String maskName)
+        {
+            this.maskName = maskName;
+        }
+
+        /**
+         * The name of this mask.
+         *
+         * @return the name, one of the mask constants of {@link NameMasker}
+         */
+        public String getMaskName()
+        {
+            return maskName;
+        }
+
+        /**
+         * Apply this mask to a trimmed name.
+         */
+        abstract String apply(String name);
+
+        /**
+         * Resolve a mask from its name, ignoring case and surrounding white
+         * space.
+         *
+         * @param mask the name of the mask
+         * @return the mask, {@link #NONE} if the name is not one of the valid
+         *         mask names
+         */
+        public static Mask of(String mask)
+        {
+            String maskName = StringUtils.trimToEmpty(mask).toLowerCase(Locale.ENGLISH);
+            for (Mask value : values())
+            {
+                if (value.maskName.equals(maskName))
+                {
+                    return value;
+                }
+            }
+            return NONE;
+        }
+    }
+
+    /**
+     * The masked names by name, for each mask.
+     */
+    private final Map<Mask, ConcurrentMap<String, String>> cache = new EnumMap<Mask, ConcurrentMap<String, String>>(Mask.class);
+
+    /**
+     * Create a masker with an empty cache.
+     */
+    public NameMasker()
+    {
+        for (Mask mask : Mask.values())
+        {
+            cache.put(mask, new ConcurrentHashMap<String, String>());
+        }
+    }
+
+    /**
+     * Returns the name with the appropriate <code>mask</code> applied. The mask, must match one of the valid mask
+     * properties or will be ignored.
+     *
+     * @param name the name to be masked
+     * @param mask the mask to apply
+     * @return the masked name.
+     */
+    public String mask(String name, String mask)
+    {
+        return mask(name, Mask.of(mask));
+    }
+
+    /**
+     * Returns the name with the <code>mask</code> applied, remembering the
+     * result for the next call with the same name.
+     *
+     * @param name the name to be masked
+     * @param mask the mask to apply
+     * @return the masked name.
+     */
+    public String mask(String name, Mask mask)
+    {
+        if (name == null)
+        {
+            return mask.apply("");
+        }
+        ConcurrentMap<String, String> names = cache.get(mask);
+        String masked = names.get(name);
+        if (masked == null)
+        {
+            masked = mask.apply(name.trim());
+            if (names.size() >= MAX_CACHED_NAMES)
+            {
+                names.clear();
+            }
+            names.put(name, masked);
+        }
+        return masked;
+    }
+
+    /**
+     * Returns the name in upper case, independent of the default locale. An
+     * ASCII name is scanned once and returned as it is if it has no lower
+     * case letter.
+     *
+     * @param name the name
+     * @return the name in upper case
+     */
+    static String toUpperCase(String name)
+    {
+        return changeCase(name, 'a', 'z', -CASE_OFFSET);
+    }
+
+    /**
+     * Returns the name in lower case, independent of the default locale. An
+     * ASCII name is scanned once and returned as it is if it has no upper
+     * case letter.
+     *
+     * @param name the name
+     * @return the name in lower case
+     */
+    static String toLowerCase(String name)
+    {
+        return changeCase(name, 'A', 'Z', CASE_OFFSET);
+    }
+
+    private static String changeCase(String name, char first, char last, int offset)
+    {
+        int length = name.length();
+        char[] chars = null;
+        for (int i = 0; i < length; i++)
+        {
+            char c = name.charAt(i);
+            if (c >= NON_ASCII)
+            {
+                return offset < 0 ? name.toUpperCase(Locale.ROOT) : name.toLowerCase(Locale.ROOT);
+            }
+            if (c >= first && c <= last)
+            {
+                if (chars == null)
+                {
+                    chars = name.toCharArray();
+                }
+                chars[i] = (char)(c + offset);
+            }
+        }
+        return chars == null ? name : new String(chars);
+    }
+
+    /**
+     * Returns the name without accents and any other character which is not
+     * ASCII. An ASCII name is scanned once and returned as it is, any other
+     * name is decomposed and its characters which are not ASCII, the
+     * combining marks among them, are dropped.
+     *
+     * @param name the name
+     * @return the name with ASCII characters only
+     */
+    static String removeAccents(String name)
+    {
+        int length = name.length();
+        for (int i = 0; i < length; i++)
+        {
+            if (name.charAt(i) >= NON_ASCII)
             {
-                name = Normalizer.normalize(name, java.text.Normalizer.Form.NFD).replaceAll("[^\\p{ASCII}]","");
+                String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+                StringBuilder ascii = new StringBuilder(decomposed.length());
+                for (int j = 0; j < decomposed.length(); j++)
+                {
+                    char c = decomposed.charAt(j);
+                    if (c < NON_ASCII)
+                    {
+                        ascii.append(c);
+                    }
+                }
+                return ascii.toString();
             }
         }
         return name;
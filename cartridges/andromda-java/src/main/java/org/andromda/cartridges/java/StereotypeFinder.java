@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.uml2.common.util.UML2Util;
+import org.eclipse.uml2.uml.Element;
+import org.eclipse.uml2.uml.Stereotype;
+import org.eclipse.uml2.uml.util.UMLUtil;
+
+/**
+ * Finds the elements of a model with a given stereotype applied. A stereotype
+ * given by its simple name, e.g. <code>Enumeration</code>, matches the
+ * stereotype of that name in any profile. One given by its qualified name,
+ * e.g. <code>kissmda-profile-core::Enumeration</code>, only matches the
+ * stereotype of that profile.
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class StereotypeFinder {
+
+	private static final String SEPARATOR = "::";
+
+	/**
+	 * Find the elements with the given stereotypes applied by reading the
+	 * stereotype applications stored in the resources of the model, not by
+	 * walking it. The cost scales with the number of stereotype applications
+	 * instead of the size of the model.
+	 *
+	 * @param root
+	 *            the root package, only the root and the elements it contains
+	 *            are returned
+	 * @param names
+	 *            the simple or qualified names of the stereotypes
+	 * @return the base elements per stereotype name, in the order of the
+	 *         stereotype applications
+	 */
+	public Map<String, List<Element>> findByApplications(
+			org.eclipse.uml2.uml.Package root, String... names) {
+		Map<String, List<Element>> elements = new LinkedHashMap<String, List<Element>>();
+		// The application classes are named after their stereotypes, so
+		// unrelated applications can be skipped without resolving them
+		Set<String> classNames = new HashSet<String>();
+		for (String name : names) {
+			elements.put(name, new ArrayList<Element>());
+			classNames.add(UML2Util.getValidJavaIdentifier(getName(name)));
+		}
+
+		Resource resource = root.eResource();
+		if (resource == null) {
+			return elements;
+		}
+		// The applications are stored next to their base elements, which may
+		// be in any resource of a model split over several files
+		ResourceSet resourceSet = resource.getResourceSet();
+		List<Resource> resources = resourceSet == null ? Collections
+				.singletonList(resource) : new ArrayList<Resource>(
+				resourceSet.getResources());
+		for (Resource contained : resources) {
+			for (EObject eObject : contained.getContents()) {
+				if (eObject instanceof Element
+						|| !classNames.contains(eObject.eClass().getName())) {
+					continue;
+				}
+				Stereotype stereotype = UMLUtil.getStereotype(eObject);
+				Element base = UMLUtil.getBaseElement(eObject);
+				if (stereotype == null || base == null
+						|| !EcoreUtil.isAncestor(root, base)) {
+					continue;
+				}
+				for (String name : names) {
+					if (matches(stereotype, name)) {
+						elements.get(name).add(base);
+					}
+				}
+			}
+		}
+		return elements;
+	}
+
+	/**
+	 * Check whether a stereotype is applied to an element.
+	 *
+	 * @param element
+	 *            the UML element
+	 * @param name
+	 *            the simple or qualified name of the stereotype
+	 * @return true if the stereotype is applied
+	 */
+	public boolean isApplied(Element element, String name) {
+		for (Stereotype stereotype : element.getAppliedStereotypes()) {
+			if (matches(stereotype, name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Check whether a stereotype has the given name.
+	 *
+	 * @param stereotype
+	 *            the stereotype
+	 * @param name
+	 *            a simple name, matching the stereotype of that name in any
+	 *            profile, or a qualified name
+	 * @return true if the stereotype matches
+	 */
+	public static boolean matches(Stereotype stereotype, String name) {
+		if (name.contains(SEPARATOR)) {
+			return name.equals(stereotype.getQualifiedName());
+		}
+		return name.equals(stereotype.getName());
+	}
+
+	private String getName(String name) {
+		int index = name.lastIndexOf(SEPARATOR);
+		return index < 0 ? name : name.substring(index + SEPARATOR.length());
+	}
+}
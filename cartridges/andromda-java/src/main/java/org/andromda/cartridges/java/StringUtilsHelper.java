@@ -1,15 +1,12 @@
 package org.andromda.cartridges.java;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.text.WordUtils;
 
 /**
  * A utility object for doing string manipulation operations that are commonly
@@ -226,22 +223,72 @@ public class StringUtilsHelper
     }
 
     /**
-     * Splits at each sequence of non-word characters. Sequences of capitals
-     * will be left untouched.
+     * Splits at each sequence of non-word characters and before each sequence
+     * of capitals. Sequences of capitals will be left untouched.
+     * <p>
+     * The parts are the ones <code>String.split</code> returns: a part before
+     * a leading separator is empty, trailing empty parts are dropped and a
+     * string without separators is its only part.
+     * </p>
      */
     private static String[] splitAtNonWordCharacters(final String string)
     {
-        final Pattern capitalSequencePattern = Pattern.compile("[A-Z]+");
-        final Matcher matcher = capitalSequencePattern.matcher(StringUtils.trimToEmpty(string));
-        final StringBuffer buffer = new StringBuffer();
-        while (matcher.find())
+        final String trimmed = StringUtils.trimToEmpty(string);
+        final int length = trimmed.length();
+        final List<String> parts = new ArrayList<String>();
+        boolean separated = false;
+        boolean inSeparator = false;
+        int start = 0;
+        for (int i = 0; i < length; i++)
+        {
+            final char c = trimmed.charAt(i);
+            if (!isWordCharacter(c))
+            {
+                if (!inSeparator)
+                {
+                    parts.add(trimmed.substring(start, i));
+                    inSeparator = true;
+                }
+                separated = true;
+            }
+            else if (isCapital(c) && (i == 0 || !isCapital(trimmed.charAt(i - 1))))
+            {
+                // a sequence of capitals is separated from what precedes it
+                if (!inSeparator)
+                {
+                    parts.add(trimmed.substring(start, i));
+                }
+                separated = true;
+                inSeparator = false;
+                start = i;
+            }
+            else if (inSeparator)
+            {
+                inSeparator = false;
+                start = i;
+            }
+        }
+        if (!separated)
+        {
+            return new String[] {trimmed};
+        }
+        parts.add(inSeparator ? "" : trimmed.substring(start));
+        int size = parts.size();
+        while (size > 0 && parts.get(size - 1).isEmpty())
         {
-            matcher.appendReplacement(buffer, ' ' + matcher.group());
+            size--;
         }
-        matcher.appendTail(buffer);
+        return parts.subList(0, size).toArray(new String[size]);
+    }
+
+    private static boolean isCapital(final char c)
+    {
+        return c >= 'A' && c <= 'Z';
+    }
 
-        // split on all non-word characters: make sure we send the good parts
-        return buffer.toString().split("[^A-Za-z0-9]+");
+    private static boolean isWordCharacter(final char c)
+    {
+        return isCapital(c) || c >= 'a' && c <= 'z' || c >= '0' && c <= '9';
     }
 
     /**
@@ -338,8 +385,40 @@ public class StringUtilsHelper
      */
     public static String toSingleLine(String string)
     {
-        // remove anything that is greater than 1 space.
-        return (string == null) ? "" : string.replaceAll("[$\\s]+", " ").trim();
+        if (string == null)
+        {
+            return "";
+        }
+        // replace each sequence of white space and dollar signs by one space
+        final int length = string.length();
+        final StringBuilder buffer = new StringBuilder(length);
+        boolean inSpace = false;
+        for (int i = 0; i < length; i++)
+        {
+            final char c = string.charAt(i);
+            if (c == '$' || isSpace(c))
+            {
+                if (!inSpace)
+                {
+                    buffer.append(' ');
+                    inSpace = true;
+                }
+            }
+            else
+            {
+                buffer.append(c);
+                inSpace = false;
+            }
+        }
+        return buffer.toString().trim();
+    }
+
+    /**
+     * Whether the character is white space as <code>\s</code> matches it.
+     */
+    private static boolean isSpace(final char c)
+    {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
     }
 
     /**
@@ -428,6 +507,70 @@ public class StringUtilsHelper
         String indentation,
         final int wrapAtColumn,
         final boolean htmlStyle)
+    {
+        final StringBuilder formattedText = new StringBuilder(
+            plainText == null ? 0 : plainText.length() + plainText.length() / 8);
+        try
+        {
+            format(plainText, indentation, wrapAtColumn, htmlStyle, formattedText);
+        }
+        catch (final IOException ioException)
+        {
+            logger.log(Level.SEVERE, "Could not format text: " + plainText, ioException);
+            return plainText;
+        }
+        return formattedText.toString();
+    }
+
+    /**
+     * Formats the given argument with the specified indentation like
+     * {@link #format(String, String)} does, writing the formatted text to
+     * <em>out</em>.
+     *
+     * @param plainText   the text to format
+     * @param indentation the indentation
+     * @param out         receives the formatted text
+     * @throws IOException when <em>out</em> cannot be written
+     *
+     * @see #format(String, String, int, boolean, Appendable)
+     */
+    public static void format(
+        final String plainText,
+        final String indentation,
+        final Appendable out)
+        throws IOException
+    {
+        format(plainText, indentation, 100 - indentation.length(), true, out);
+    }
+
+    /**
+     * <p>
+     * Formats the given argument like {@link #format(String, String, int, boolean)}
+     * does, writing the formatted text to <em>out</em> as it goes. The lines of
+     * the text are wrapped in place, no intermediate strings are created.
+     * </p>
+     *
+     * @param plainText    the text to format, only the indentation is written in
+     *                     case this argument is blank; long words will be
+     *                     placed on a newline but will never be wrapped
+     * @param indentation  the empty string will be used if this argument would
+     *                     be <code>null</code>
+     * @param wrapAtColumn does not take into account the length of the
+     *                     indentation, needs to be strictly positive
+     * @param htmlStyle    whether or not to make sure the written text is
+     *                     suited for display in HTML environments such as JavaDoc
+     * @param out          receives the formatted text
+     * @throws IOException when <em>out</em> cannot be written
+     * @throws IllegalArgumentException when the <em>wrapAtColumn</em>
+     *                                  argument is not strictly positive
+     */
+    public static void format(
+        final String plainText,
+        String indentation,
+        final int wrapAtColumn,
+        final boolean htmlStyle,
+        final Appendable out)
+        throws IOException
     {
         // - we cannot wrap at a column index less than 1
         if (wrapAtColumn < 1)
@@ -444,83 +587,164 @@ public class StringUtilsHelper
         // - null plaintext will yield the empty string
         if (StringUtils.isBlank(plainText))
         {
-            return indentation;
+            out.append(indentation);
+            return;
         }
 
         final String lineSeparator = LINE_SEPARATOR;
+        final int length = plainText.length();
 
-        String format;
+        // - whether some text has already been written
+        boolean written = false;
 
-        try
+        // - the lines are split like a BufferedReader reads them
+        int lineStart = 0;
+        int lineEnd = lineEnd(plainText, lineStart);
+        while (lineStart < length)
         {
-            // - this buffer will contain the formatted text
-            final StringBuilder formattedText = new StringBuilder();
-
-            // - we'll be reading lines from this reader
-            final BufferedReader reader = new BufferedReader(new StringReader(plainText));
-
-            String line = reader.readLine();
-
-            // - test whether or not we reached the end of the stream
-            while (line != null)
+            if (!isBlank(plainText, lineStart, lineEnd))
             {
-                if (StringUtils.isNotBlank(line))
+                // - in HTML mode we start each new line on a paragraph
+                if (htmlStyle)
                 {
-                    // Remove leading/trailing whitespace before adding indentation and html formatting.
-                    //line = line.trim();
-                    // - in HTML mode we start each new line on a paragraph
-                    if (htmlStyle)
-                    {
-                        formattedText.append(indentation);
-                        formattedText.append("<p>");
-                        formattedText.append(lineSeparator);
-                    }
-
-                    // - WordUtils.wrap never indents the first line so we do it
-                    // here
-                    formattedText.append(indentation);
-
-                    // - append the wrapped text, the indentation is prefixed
-                    // with a newline
-                    formattedText.append(WordUtils.wrap(
-                        line.trim(),
-                        wrapAtColumn,
-                        lineSeparator + indentation,
-                        false));
-
-                    // - in HTML mode we need to close the paragraph
-                    if (htmlStyle)
-                    {
-                        formattedText.append(lineSeparator);
-                        formattedText.append(indentation);
-                        formattedText.append("</p>");
-                    }
+                    out.append(indentation);
+                    out.append("<p>");
+                    out.append(lineSeparator);
                 }
 
-                // - read the next line
-                line = reader.readLine();
+                // - the wrapped lines never start with the indentation so we
+                // add it here
+                out.append(indentation);
 
-                // - only add a newline when the next line is not empty and some
-                // string have already been added
-                if (formattedText.length() > 0 && StringUtils.isNotBlank(line))
+                // - append the trimmed, wrapped line, the indentation is
+                // prefixed with a newline
+                int start = lineStart;
+                int end = lineEnd;
+                while (start < end && plainText.charAt(start) <= ' ')
                 {
-                    formattedText.append(lineSeparator);
+                    start++;
                 }
+                while (end > start && plainText.charAt(end - 1) <= ' ')
+                {
+                    end--;
+                }
+                wrap(plainText, start, end, wrapAtColumn, lineSeparator, indentation, out);
+
+                // - in HTML mode we need to close the paragraph
+                if (htmlStyle)
+                {
+                    out.append(lineSeparator);
+                    out.append(indentation);
+                    out.append("</p>");
+                }
+
+                // - a line of control characters is trimmed to nothing
+                written |= htmlStyle || indentation.length() > 0 || start < end;
             }
 
-            // - close the reader as there is nothing more to read
-            reader.close();
+            // - move to the next line
+            lineStart = nextLineStart(plainText, lineEnd);
+            lineEnd = lineEnd(plainText, lineStart);
 
-            // - set the return value
-            format = formattedText.toString();
+            // - only add a newline when the next line is not empty and some
+            // string have already been added
+            if (written && lineStart < length && !isBlank(plainText, lineStart, lineEnd))
+            {
+                out.append(lineSeparator);
+            }
         }
-        catch (final IOException ioException)
+    }
+
+    /**
+     * The index of the line break ending the line starting at <em>start</em>,
+     * the length of the text if the line is not ended.
+     */
+    private static int lineEnd(final String text, final int start)
+    {
+        final int length = text.length();
+        int end = start;
+        while (end < length && text.charAt(end) != '\n' && text.charAt(end) != '\r')
         {
-            logger.log(Level.SEVERE, "Could not format text: " + plainText, ioException);
-            format = plainText;
+            end++;
         }
+        return end;
+    }
 
-        return format;
+    /**
+     * The index of the line following the line break at <em>lineEnd</em>,
+     * which may be a carriage return followed by a line feed.
+     */
+    private static int nextLineStart(final String text, final int lineEnd)
+    {
+        final int length = text.length();
+        if (lineEnd >= length)
+        {
+            return length;
+        }
+        if (text.charAt(lineEnd) == '\r' && lineEnd + 1 < length && text.charAt(lineEnd + 1) == '\n')
+        {
+            return lineEnd + 2;
+        }
+        return lineEnd + 1;
+    }
+
+    /**
+     * Whether a part of the text contains white space only, as
+     * {@link StringUtils#isBlank(CharSequence)} tells it.
+     */
+    private static boolean isBlank(final String text, final int start, final int end)
+    {
+        for (int i = start; i < end; i++)
+        {
+            if (!Character.isWhitespace(text.charAt(i)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Wraps a part of the text at spaces the way
+     * <code>WordUtils.wrap(part, wrapLength, lineSeparator + indentation, false)</code>
+     * does, writing it to <em>out</em>. Words longer than the wrap length are
+     * not wrapped.
+     */
+    private static void wrap(
+        final String text,
+        final int start,
+        final int end,
+        final int wrapLength,
+        final String lineSeparator,
+        final String indentation,
+        final Appendable out)
+        throws IOException
+    {
+        int offset = start;
+        while (end - offset > wrapLength)
+        {
+            if (text.charAt(offset) == ' ')
+            {
+                offset++;
+                continue;
+            }
+            int spaceToWrapAt = text.lastIndexOf(' ', wrapLength + offset);
+            if (spaceToWrapAt < offset)
+            {
+                // - do not wrap a really long word, just extend beyond the limit
+                spaceToWrapAt = text.indexOf(' ', wrapLength + offset);
+                if (spaceToWrapAt < 0 || spaceToWrapAt >= end)
+                {
+                    break;
+                }
+            }
+            out.append(text, offset, spaceToWrapAt);
+            out.append(lineSeparator);
+            out.append(indentation);
+            offset = spaceToWrapAt + 1;
+        }
+        // - whatever is left is short enough to just pass through
+        out.append(text, offset, end);
     }
 
     /**
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java.event;
+
+import de.crowdcode.kissmda.core.jdt.event.GenericEvent;
+
+/**
+ * Event published at each step of the generation of a class file. The events
+ * are delivered to the listeners in a {@link GenerationEventBatch}, on a
+ * thread of their own.
+ * 
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class GenerationEvent extends GenericEvent {
+
+	/**
+	 * The step of the generation a class file went through.
+	 */
+	public enum Type {
+
+		/**
+		 * The class is about to be generated.
+		 */
+		BEFORE_GENERATE,
+
+		/**
+		 * The class was generated and formatted.
+		 */
+		AFTER_FORMAT,
+
+		/**
+		 * The class file was written, or left untouched because it did not
+		 * change.
+		 */
+		AFTER_WRITE
+	}
+
+	private final Type type;
+
+	private final String fileName;
+
+	private final long time;
+
+	private final boolean written;
+
+	public GenerationEvent(Type type, String fileName, boolean written) {
+		this.type = type;
+		this.fileName = fileName;
+		this.time = System.currentTimeMillis();
+		this.written = written;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * @return the fully qualified name of the generated class
+	 */
+	public String getFileName() {
+		return fileName;
+	}
+
+	/**
+	 * @return the time the event was published, in milliseconds
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * @return for {@link Type#AFTER_WRITE}, false if the file was left
+	 *         untouched because it did not change
+	 */
+	public boolean isWritten() {
+		return written;
+	}
+
+	@Override
+	public String toString() {
+		return type + " " + fileName;
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java.event;
+
+import java.util.Collections;
+import java.util.List;
+
+import de.crowdcode.kissmda.core.jdt.event.GenericEvent;
+
+/**
+ * The generation events published since the last batch, in the order they
+ * were published. Listeners subscribe to this event to receive them.
+ * 
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class GenerationEventBatch extends GenericEvent {
+
+	private final List<GenerationEvent> events;
+
+	public GenerationEventBatch(List<GenerationEvent> events) {
+		this.events = Collections.unmodifiableList(events);
+	}
+
+	public List<GenerationEvent> getEvents() {
+		return events;
+	}
+}
@@ -30,6 +30,11 @@ import org.junit.runners.Suite.SuiteClasses;
  * @since 1.0.0
  */
 @RunWith(Suite.class)
-@SuiteClasses({JavaTest.class})
+@SuiteClasses({JavaTest.class, ExecutionModeTest.class,
+		ElementDiscoveryTest.class, IncrementalGenerationTest.class,
+		ModelLoadingTest.class, GenerationReportTest.class,
+		ModelSnapshotTest.class, EnumClassGeneratorTest.class,
+		JavaCodeFormatterTest.class, ScaleTest.class,
+		LightweightJavaFormatterTest.class, StringUtilsHelperTest.class})
 public class AllTests {
 }
@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.uml2.uml.Comment;
+import org.eclipse.uml2.uml.Element;
+import org.eclipse.uml2.uml.Model;
+import org.eclipse.uml2.uml.Operation;
+import org.eclipse.uml2.uml.Stereotype;
+import org.eclipse.uml2.uml.util.UMLUtil;
+import org.jukito.JukitoRunner;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import de.crowdcode.kissmda.core.Context;
+import de.crowdcode.kissmda.core.StandardContext;
+import de.crowdcode.kissmda.core.uml.PackageHelper;
+
+/**
+ * Tests of how the stereotyped elements are found: walking the model and
+ * reading the stereotype applications must find the same classes and
+ * generate them into the same packages.
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@RunWith(JukitoRunner.class)
+public class ElementDiscoveryTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Inject
+	private JavaTransformer javaTransformer;
+
+	@Inject
+	private PackageHelper packageHelper;
+
+	private Context context;
+
+	@Before
+	public void setUp() throws Exception {
+		context = new StandardContext();
+	}
+
+	@Test
+	public void testStereotypeApplicationsFindSameClassesAsModelWalk()
+			throws IOException {
+		context.setSourceModel(TestFiles.getTestModel());
+		Map<String, String> walk = transform(ElementDiscovery.MODEL_WALK);
+		assertTrue(walk.containsKey("/org/andromda/EnumClass.java"));
+		assertEquals(walk,
+				transform(ElementDiscovery.STEREOTYPE_APPLICATIONS));
+	}
+
+	@Test
+	public void testDiscoveryModesAgreeOnSourceDirectories()
+			throws IOException {
+		// The root and its first package are SourceDirectories, the classes
+		// of the second package come after the first one in the model walk
+		File modelFile = new File(folder.newFolder("model"),
+				"source-directories.uml");
+		Model model = new SyntheticModelBuilder().packageDepth(1)
+				.enumerationClasses(4).literalsPerEnumeration(1).build(
+						new ModelLoader().createResourceSet(),
+						URI.createFileURI(modelFile.getAbsolutePath()));
+		Stereotype sourceDirectory = model.getAppliedProfiles().get(0)
+				.getOwnedStereotype("SourceDirectory");
+		model.getNestedPackage("package1x0").applyStereotype(sourceDirectory);
+		model.eResource().save(Collections.emptyMap());
+		context.setSourceModel(modelFile.getAbsolutePath());
+
+		Map<String, String> walk = transform(ElementDiscovery.MODEL_WALK);
+		assertEquals(4, walk.size());
+		assertEquals(walk,
+				transform(ElementDiscovery.STEREOTYPE_APPLICATIONS));
+		// Both SourceDirectories and the four classes
+		assertEquals(6, javaTransformer.getReport().getElementsVisited());
+	}
+
+	@Test
+	public void testStereotypesOfARenamedProfileAreFound() throws IOException {
+		Model model = new SyntheticModelBuilder().packageDepth(1)
+				.enumerationClasses(4).literalsPerEnumeration(1).build(
+						new ModelLoader().createResourceSet(),
+						URI.createURI("renamed.uml"));
+		model.getAppliedProfiles().get(0).setName("renamed-profile");
+
+		// Matched by their simple names unless configured
+		Map<String, String> walk = transform(ElementDiscovery.MODEL_WALK,
+				model);
+		assertEquals(4, walk.size());
+		assertEquals(walk, transform(
+				ElementDiscovery.STEREOTYPE_APPLICATIONS, model));
+
+		javaTransformer.setSourceDirectoryStereotype("renamed-profile::SourceDirectory");
+		javaTransformer.setEnumerationStereotype("renamed-profile::Enumeration");
+		for (ElementDiscovery elementDiscovery : ElementDiscovery.values()) {
+			assertEquals(walk, transform(elementDiscovery, model));
+		}
+		javaTransformer.setEnumerationStereotype("kissmda-profile-core::Enumeration");
+		for (ElementDiscovery elementDiscovery : ElementDiscovery.values()) {
+			assertTrue(transform(elementDiscovery, model).isEmpty());
+		}
+	}
+
+	@Test
+	public void testApplicationsInOtherResourcesAreFound() throws IOException {
+		ResourceSet resourceSet = new ModelLoader().createResourceSet();
+		Model model = new SyntheticModelBuilder().packageDepth(1)
+				.enumerationClasses(4).literalsPerEnumeration(1).build(
+						resourceSet, URI.createURI("first.uml"));
+		// The second package and the applications of its classes are stored
+		// in a resource of their own
+		org.eclipse.uml2.uml.Package second = model
+				.getNestedPackage("package1x1");
+		Resource secondResource = resourceSet.createResource(URI
+				.createURI("second.uml"));
+		secondResource.getContents().add(second);
+		for (EObject eObject : new ArrayList<EObject>(model.eResource()
+				.getContents())) {
+			Element base = eObject instanceof Element ? null : UMLUtil
+					.getBaseElement(eObject);
+			if (base != null && EcoreUtil.isAncestor(second, base)) {
+				secondResource.getContents().add(eObject);
+			}
+		}
+		// The package and the applications of its two classes
+		assertEquals(3, secondResource.getContents().size());
+
+		Map<String, String> walk = transform(ElementDiscovery.MODEL_WALK,
+				model);
+		assertEquals(4, walk.size());
+		assertEquals(walk, transform(
+				ElementDiscovery.STEREOTYPE_APPLICATIONS, model));
+	}
+
+	@Test
+	public void testModelTraversalVisitsOwnedElements() throws Exception {
+		context.setSourceModel(TestFiles.getTestModel());
+		org.eclipse.uml2.uml.Package rootPackage = packageHelper
+				.getRootPackage(context);
+
+		List<Element> traversed = new ArrayList<Element>();
+		for (Element element : ModelTraversal.of(rootPackage)) {
+			traversed.add(element);
+		}
+		List<Element> allOwned = rootPackage.allOwnedElements();
+		assertEquals(allOwned.size(), traversed.size());
+		assertEquals(new HashSet<Element>(allOwned), new HashSet<Element>(
+				traversed));
+
+		int pruned = 0;
+		for (Element element : ModelTraversal.of(rootPackage)
+				.descendInto(ModelTraversal.PACKAGES_AND_CLASSIFIERS)
+				.include(ModelTraversal.PACKAGES_AND_CLASSIFIERS)) {
+			assertFalse(element instanceof Operation);
+			assertFalse(element instanceof Comment);
+			pruned++;
+		}
+		assertTrue(pruned > 0 && pruned < traversed.size());
+	}
+
+	/**
+	 * Transform the source model of the context into a new directory.
+	 */
+	private Map<String, String> transform(ElementDiscovery elementDiscovery)
+			throws IOException {
+		File targetDirectory = folder.newFolder();
+		context.setTargetModel(targetDirectory.getPath());
+		javaTransformer.setElementDiscovery(elementDiscovery);
+		javaTransformer.transform(context);
+		return TestFiles.readFiles(targetDirectory);
+	}
+
+	/**
+	 * Transform a model in memory into a new directory.
+	 */
+	private Map<String, String> transform(ElementDiscovery elementDiscovery,
+			Model model) throws IOException {
+		File targetDirectory = folder.newFolder();
+		context.setTargetModel(targetDirectory.getPath());
+		javaTransformer.setElementDiscovery(elementDiscovery);
+		javaTransformer.transform(context, model);
+		return TestFiles.readFiles(targetDirectory);
+	}
+}
@@ -0,0 +1,403 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.inject.Inject;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.eclipse.uml2.uml.Model;
+import org.eclipse.uml2.uml.PrimitiveType;
+import org.eclipse.uml2.uml.Property;
+import org.eclipse.uml2.uml.UMLFactory;
+import org.jukito.JukitoRunner;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+/**
+ * Tests of the {@link EnumClassGenerator} and its helpers. The generated
+ * enumerations are compiled and their methods called.
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@RunWith(JukitoRunner.class)
+public class EnumClassGeneratorTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Inject
+	private EnumClassGenerator enumClassGenerator;
+
+	@Test
+	public void testCodeEmitterIndentsAndWritesJavadoc() {
+		CodeEmitter emitter = new CodeEmitter("\n", "\t");
+		emitter.line("class A {").indent();
+		emitter.javadoc("first\n\nsecond\n");
+		emitter.append("int a").append(';').newLine().outdent().line("}");
+
+		assertEquals("class A {\n\t/**\n\t * first\n\t * \n\t * second\n"
+				+ "\t */\n\tint a;\n}\n", emitter.toString());
+		assertEquals(0, emitter.reset().length());
+	}
+
+	@Test
+	public void testNameMaskerRemembersMaskedNames() {
+		NameMasker nameMasker = new NameMasker();
+		String[] masks = { NameMasker.UPPERCASE, NameMasker.UNDERSCORE,
+				NameMasker.UPPERUNDERSCORE, NameMasker.LOWERCASE,
+				NameMasker.LOWERUNDERSCORE, NameMasker.UPPERCAMELCASE,
+				NameMasker.LOWERCAMELCASE, NameMasker.NOSPACE,
+				NameMasker.NOACCENT, NameMasker.NONE };
+		for (String mask : masks) {
+			NameMasker.Mask compiled = NameMasker.Mask.of(" "
+					+ mask.toUpperCase() + " ");
+			assertEquals(mask, compiled.getMaskName());
+			String masked = nameMasker.mask(" caf\u00e9Order item ", mask);
+			assertSame(masked, nameMasker.mask(" caf\u00e9Order item ", compiled));
+		}
+		assertEquals("ORDER_ITEM", nameMasker.mask(" orderItem ",
+				NameMasker.Mask.UPPERUNDERSCORE));
+		assertEquals("cafeOrder item", nameMasker.mask(" caf\u00e9Order item ",
+				NameMasker.Mask.NOACCENT));
+		// An unknown mask is ignored
+		assertSame(NameMasker.Mask.NONE, NameMasker.Mask.of("unknown"));
+		assertEquals("", nameMasker.mask(null, NameMasker.UPPERCASE));
+		for (int i = 0; i <= NameMasker.MAX_CACHED_NAMES; i++) {
+			assertEquals("NAME" + i, nameMasker.mask("name" + i,
+					NameMasker.Mask.UPPERCASE));
+		}
+	}
+
+	@Test
+	public void testNameMaskerFastPathsMatchRegularExpression() {
+		String[] names = { "", "orderItem", "ORDER_ITEM", "order item 2",
+				"caf\u00e9", "na\u00efve r\u00e9sum\u00e9", "\u00c9COLE",
+				"Stra\u00dfe", "\u65e5\u672c", "a\ud83d\ude00b", "\u0131i" };
+		for (String name : names) {
+			assertEquals(Normalizer.normalize(name, Normalizer.Form.NFD)
+					.replaceAll("[^\\p{ASCII}]", ""),
+					NameMasker.removeAccents(name));
+			assertEquals(name.toUpperCase(Locale.ROOT),
+					NameMasker.toUpperCase(name));
+			assertEquals(name.toLowerCase(Locale.ROOT),
+					NameMasker.toLowerCase(name));
+		}
+		// ASCII names which need no change are not copied
+		String name = "ORDER_ITEM";
+		assertSame(name, NameMasker.toUpperCase(name));
+		assertSame(name, NameMasker.removeAccents(name));
+	}
+
+	@Test
+	public void testGeneratedEnumsLookUpValues() throws Exception {
+		// The small one is looked up with a switch, the large one and the
+		// String one, which would need Java 7 for a switch, in a map
+		URLClassLoader classLoader = compileEnumerations("lookup",
+				new String[] { "Small", "Large", "Text" }, new String[] {
+						"Integer", "Integer", "String" }, new int[] { 3,
+						EnumClassGenerator.SWITCH_LOOKUP_MAX_LITERALS + 1, 3 });
+		try {
+			Class<?> small = classLoader.loadClass("lookup.Small");
+			Object[] literals = small.getEnumConstants();
+			assertSame(literals[1], fromValue(small, Integer.class, 1));
+			assertNull(fromValue(small, Integer.class, 3));
+			assertNull(fromValue(small, Integer.class, null));
+
+			Class<?> text = classLoader.loadClass("lookup.Text");
+			literals = text.getEnumConstants();
+			assertSame(literals[1], fromValue(text, String.class, "v\"1"));
+			assertSame(literals[0], fromValue(text, String.class, "v\"0"));
+			assertNull(fromValue(text, String.class, "v2"));
+			assertNull(fromValue(text, String.class, null));
+			assertFalse(TestFiles.read(new File(folder.getRoot(),
+					"lookup/lookup/Text.java")).contains("switch"));
+
+			Class<?> large = classLoader.loadClass("lookup.Large");
+			literals = large.getEnumConstants();
+			assertSame(literals[3], fromValue(large, Integer.class, 3));
+			assertSame(literals[0], fromValue(large, Integer.class, 0));
+			assertNull(fromValue(large, Integer.class, 10));
+			assertNull(fromValue(large, Integer.class, null));
+			assertSame(literals[2], large.getMethod("fromString", String.class)
+					.invoke(null, "LITERAL2"));
+
+			List<?> valueList = (List<?>) large.getMethod("valueList").invoke(
+					null);
+			assertEquals(Arrays.asList(literals), valueList);
+			assertSame(valueList, large.getMethod("valueList").invoke(null));
+			try {
+				valueList.clear();
+				fail("The list of the literals can be modified");
+			} catch (UnsupportedOperationException e) {
+				// Expected
+			}
+		} finally {
+			classLoader.close();
+		}
+	}
+
+	@Test
+	public void testGeneratedCodecsRoundTrip() throws Exception {
+		// The huge one does not fit into a byte
+		enumClassGenerator.setGenerateCodecs(true);
+		URLClassLoader classLoader = compileEnumerations("codecs",
+				new String[] { "Small", "Huge" }, new String[] { "String",
+						"Integer" }, new int[] { 3, 300 });
+		try {
+			Class<?> small = classLoader.loadClass("codecs.Small");
+			Class<?> huge = classLoader.loadClass("codecs.Huge");
+			for (Class<?> enumClass : Arrays.asList(small, huge)) {
+				Object[] literals = enumClass.getEnumConstants();
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				DataOutputStream out = new DataOutputStream(bytes);
+				for (Object literal : literals) {
+					enumClass.getMethod("writeTo", DataOutput.class).invoke(
+							literal, out);
+				}
+				assertEquals(enumClass == small ? 3 : 600, bytes.size());
+				DataInputStream in = new DataInputStream(
+						new ByteArrayInputStream(bytes.toByteArray()));
+				for (Object literal : literals) {
+					assertSame(literal,
+							enumClass.getMethod("readFrom", DataInput.class)
+									.invoke(null, in));
+				}
+				assertSame(literals[2], enumClass.getMethod("fromOrdinal",
+						int.class).invoke(null, 2));
+				assertSame(literals[0], enumClass.getMethod("fromOrdinal",
+						int.class, enumClass).invoke(null, -1, literals[0]));
+			}
+
+			Object[] literals = small.getEnumConstants();
+			for (Object literal : literals) {
+				Object encoded = small.getMethod("toByte").invoke(literal);
+				assertSame(literal, small.getMethod("fromByte", byte.class)
+						.invoke(null, encoded));
+			}
+			assertNull(small.getMethod("fromByte", byte.class, small).invoke(
+					null, (byte) 200, null));
+			assertEquals("\"v\\\"1\"", small.getMethod("toJson").invoke(
+					literals[1]));
+			assertEquals("3", huge.getMethod("toJson").invoke(
+					huge.getEnumConstants()[3]));
+			assertFalse(Arrays.asList(huge.getMethods()).toString()
+					.contains("toByte"));
+
+			// Unknown ordinals fail unless the caller passes a literal for them
+			try {
+				small.getMethod("fromOrdinal", int.class).invoke(null, 3);
+				fail("Unknown ordinal decoded");
+			} catch (InvocationTargetException e) {
+				assertTrue(e.getCause() instanceof IllegalArgumentException);
+			}
+			try {
+				small.getMethod("readFrom", DataInput.class).invoke(
+						null,
+						new DataInputStream(new ByteArrayInputStream(
+								new byte[] { 3 })));
+				fail("Unknown ordinal read");
+			} catch (InvocationTargetException e) {
+				assertTrue(e.getCause() instanceof StreamCorruptedException);
+			}
+		} finally {
+			classLoader.close();
+		}
+	}
+
+	@Test
+	public void testGeneratedEnumsHavePrimitiveValues() throws Exception {
+		// The types of the libraries are mapped by their qualified name, the
+		// nullable attribute keeps the wrapper type
+		URLClassLoader classLoader = compileEnumerations("primitive",
+				new String[] { "Small", "Large", "Wide", "Flag", "Nullable" },
+				new String[] { "PrimitiveTypes::Integer",
+						"JavaPrimitiveTypes::int", "JavaPrimitiveTypes::long",
+						"PrimitiveTypes::Boolean", "PrimitiveTypes::Integer[0..1]" },
+				new int[] { 3, EnumClassGenerator.SWITCH_LOOKUP_MAX_LITERALS + 1,
+						3, 2, 3 });
+		try {
+			Class<?> small = classLoader.loadClass("primitive.Small");
+			Object[] literals = small.getEnumConstants();
+			assertEquals(int.class, small.getMethod("value").getReturnType());
+			assertEquals(2, small.getMethod("value").invoke(literals[2]));
+			assertSame(literals[1], fromValue(small, int.class, 1));
+			assertNull(fromValue(small, int.class, 3));
+			assertSame(literals[1], fromValue(small, Integer.class, 1));
+			assertNull(fromValue(small, Integer.class, null));
+
+			Class<?> large = classLoader.loadClass("primitive.Large");
+			literals = large.getEnumConstants();
+			assertSame(literals[3], fromValue(large, int.class, 3));
+			assertNull(fromValue(large, int.class, 10));
+			assertNull(fromValue(large, Integer.class, null));
+
+			Class<?> wide = classLoader.loadClass("primitive.Wide");
+			literals = wide.getEnumConstants();
+			assertEquals(long.class, wide.getMethod("value").getReturnType());
+			assertSame(literals[2], fromValue(wide, long.class, 2L));
+			assertSame(literals[2], fromValue(wide, Long.class, 2L));
+
+			Class<?> flag = classLoader.loadClass("primitive.Flag");
+			literals = flag.getEnumConstants();
+			assertEquals(boolean.class, flag.getMethod("value").getReturnType());
+			assertSame(literals[1], fromValue(flag, boolean.class, false));
+			assertNull(fromValue(flag, Boolean.class, null));
+
+			Class<?> nullable = classLoader.loadClass("primitive.Nullable");
+			assertEquals(Integer.class, nullable.getMethod("value")
+					.getReturnType());
+			try {
+				nullable.getMethod("fromValue", int.class);
+				fail("A nullable value has a primitive lookup");
+			} catch (NoSuchMethodException e) {
+				// Expected
+			}
+		} finally {
+			classLoader.close();
+		}
+	}
+
+	@Test
+	public void testEnumerationWithoutLiteralsCompiles() throws Exception {
+		// Without attributes the values are Strings, whatever types the
+		// model has
+		enumClassGenerator.setGenerateCodecs(true);
+		URLClassLoader classLoader = compileEnumerations("empty",
+				new String[] { "Empty" }, new String[] { "Integer" },
+				new int[] { 0 });
+		try {
+			Class<?> empty = classLoader.loadClass("empty.Empty");
+			assertEquals(0, empty.getEnumConstants().length);
+			assertEquals(String.class, empty.getMethod("value")
+					.getReturnType());
+			assertNull(fromValue(empty, String.class, "literal0"));
+			assertEquals(0, ((List<?>) empty.getMethod("valueList").invoke(
+					null)).size());
+		} finally {
+			classLoader.close();
+		}
+	}
+
+	/**
+	 * Generate enumerations into a package named like the model and compile
+	 * them. The literals of String enumerations have two values, the ones of
+	 * Boolean enumerations true and false and the ones of the others ten. A
+	 * qualified type name is looked up in a library model, a type name ending
+	 * with <code>[0..1]</code> makes the attributes nullable.
+	 */
+	private URLClassLoader compileEnumerations(String modelName,
+			String[] names, String[] typeNames, int[] sizes) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		// Only a JDK can compile the generated code
+		Assume.assumeNotNull(compiler);
+		Model model = UMLFactory.eINSTANCE.createModel();
+		model.setName(modelName);
+		File directory = folder.newFolder(modelName);
+		File packageDirectory = new File(directory, modelName);
+		packageDirectory.mkdirs();
+		List<String> files = new ArrayList<String>();
+		files.addAll(Arrays.asList("-d", directory.getPath()));
+		Map<String, Model> libraries = new TreeMap<String, Model>();
+		for (int i = 0; i < names.length; i++) {
+			String typeName = typeNames[i];
+			boolean nullable = typeName.endsWith("[0..1]");
+			if (nullable) {
+				typeName = typeName.substring(0, typeName.length() - 6);
+			}
+			Model library = model;
+			int separator = typeName.indexOf("::");
+			if (separator >= 0) {
+				String libraryName = typeName.substring(0, separator);
+				typeName = typeName.substring(separator + 2);
+				library = libraries.get(libraryName);
+				if (library == null) {
+					library = UMLFactory.eINSTANCE.createModel();
+					library.setName(libraryName);
+					libraries.put(libraryName, library);
+				}
+			}
+			PrimitiveType type = (PrimitiveType) library.getOwnedType(typeName);
+			if (type == null) {
+				type = library.createOwnedPrimitiveType(typeName);
+			}
+			org.eclipse.uml2.uml.Class clazz = model.createOwnedClass(
+					names[i], false);
+			for (int j = 0; j < sizes[i]; j++) {
+				Property literal = clazz.createOwnedAttribute("literal" + j,
+						type);
+				if (nullable) {
+					literal.setLower(0);
+				}
+				if ("String".equals(typeName)) {
+					literal.setDefault("v\"" + j % 2);
+				} else if ("Boolean".equalsIgnoreCase(typeName)) {
+					literal.setDefault(Boolean.toString(j % 2 == 0));
+				} else {
+					literal.setDefault(Integer.toString(j % 10));
+				}
+			}
+			File file = new File(packageDirectory, names[i] + ".java");
+			Files.write(file.toPath(),
+					enumClassGenerator.generateEnumClass(clazz).getBytes("UTF-8"));
+			files.add(file.getPath());
+		}
+		assertEquals(0, compiler.run(null, null, null,
+				files.toArray(new String[files.size()])));
+		return new URLClassLoader(new URL[] { directory.toURI().toURL() });
+	}
+
+	private Object fromValue(Class<?> enumClass, Class<?> valueType,
+			Object value) throws Exception {
+		return enumClass.getMethod("fromValue", valueType).invoke(null, value);
+	}
+}
@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+
+import org.andromda.cartridges.java.event.GenerationEvent;
+import org.andromda.cartridges.java.event.GenerationEventBatch;
+import org.jukito.JukitoRunner;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import com.google.common.eventbus.Subscribe;
+
+import de.crowdcode.kissmda.core.Context;
+import de.crowdcode.kissmda.core.StandardContext;
+
+/**
+ * Tests of the execution modes: the fork-join and pipeline modes must
+ * generate exactly what a serial run generates, and the events of every class
+ * must be delivered whichever thread generated it.
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@RunWith(JukitoRunner.class)
+public class ExecutionModeTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Inject
+	private JavaTransformer javaTransformer;
+
+	private Context context;
+
+	@Before
+	public void setUp() throws Exception {
+		context = new StandardContext();
+	}
+
+	@Test
+	public void testParallelGenerationIsIdentical() throws IOException {
+		Map<String, String> serial = transformSerially();
+		context.setTargetModel(folder.newFolder("parallel").getPath());
+		javaTransformer.setParallelism(4);
+		javaTransformer.transform(context);
+
+		assertEquals(40, javaTransformer.getReport().getClassesGenerated());
+		assertEquals(serial,
+				TestFiles.readFiles(new File(context.getTargetModel())));
+	}
+
+	@Test
+	public void testPipelineGenerationIsIdentical() throws IOException {
+		Map<String, String> serial = transformSerially();
+		context.setTargetModel(folder.newFolder("pipeline").getPath());
+		javaTransformer.setExecutionMode(ExecutionMode.PIPELINE);
+		javaTransformer.setPipelineWorkers(GenerationReport.Phase.FORMAT, 3);
+		javaTransformer.setPipelineWorkers(GenerationReport.Phase.WRITE, 2);
+		javaTransformer.setPipelineQueueCapacity(1);
+		javaTransformer.transform(context);
+
+		assertEquals(serial,
+				TestFiles.readFiles(new File(context.getTargetModel())));
+		GenerationReport report = javaTransformer.getReport();
+		GenerationReport.Stage format = report
+				.getStage(GenerationReport.Phase.FORMAT);
+		assertEquals(3, format.getWorkers());
+		assertEquals(serial.size(), format.getItems());
+		assertTrue(format.getMaxQueueDepth() <= 1);
+		assertEquals(serial.size(),
+				report.getStage(GenerationReport.Phase.WRITE).getItems());
+		assertTrue(report.toJson(null).contains("\"pipeline\""));
+	}
+
+	@Test
+	public void testPipelineStopsAtTheFirstFailure() {
+		List<Integer> items = new ArrayList<Integer>();
+		for (int i = 0; i < 1000; i++) {
+			items.add(i);
+		}
+		GenerationPipeline.Stage<Integer> nothing = new GenerationPipeline.Stage<Integer>() {
+			@Override
+			public void process(Integer item) {
+			}
+		};
+		try {
+			new GenerationPipeline<Integer>(1)
+					.stage(GenerationReport.Phase.GENERATE, 2, nothing)
+					.stage(GenerationReport.Phase.FORMAT, 1,
+							new GenerationPipeline.Stage<Integer>() {
+								@Override
+								public void process(Integer item)
+										throws IOException {
+									if (item == 100) {
+										throw new IOException("Disk full");
+									}
+								}
+							})
+					.stage(GenerationReport.Phase.WRITE, 1, nothing)
+					.run(items, new GenerationReport());
+			fail("Failure not thrown");
+		} catch (IOException e) {
+			assertEquals("Disk full", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testPipelineFailingWhileStartingThrowsTheFailure() {
+		List<Integer> items = new ArrayList<Integer>();
+		for (int i = 0; i < 100; i++) {
+			items.add(i);
+		}
+		GenerationPipeline.Stage<Integer> nothing = new GenerationPipeline.Stage<Integer>() {
+			@Override
+			public void process(Integer item) {
+			}
+		};
+		// The first stage fails before the workers of the others are
+		// submitted
+		for (int run = 0; run < 50; run++) {
+			GenerationReport report = new GenerationReport();
+			try {
+				new GenerationPipeline<Integer>(1)
+						.stage(GenerationReport.Phase.GENERATE, 4,
+								new GenerationPipeline.Stage<Integer>() {
+									@Override
+									public void process(Integer item)
+											throws IOException {
+										throw new IOException("Model broken");
+									}
+								})
+						.stage(GenerationReport.Phase.FORMAT, 32, nothing)
+						.stage(GenerationReport.Phase.WRITE, 32, nothing)
+						.run(items, report);
+				fail("Failure not thrown");
+			} catch (IOException e) {
+				assertEquals("Model broken", e.getMessage());
+			}
+			assertEquals(0, report.getStage(GenerationReport.Phase.WRITE)
+					.getItems());
+		}
+	}
+
+	@Test
+	public void testGenerationEventsAreDeliveredInBatches() throws IOException {
+		Map<String, String> serial = transformSerially();
+		context.setTargetModel(folder.newFolder("events").getPath());
+		final List<GenerationEvent> events = Collections
+				.synchronizedList(new ArrayList<GenerationEvent>());
+		final List<Thread> threads = Collections
+				.synchronizedList(new ArrayList<Thread>());
+		final AtomicInteger largestBatch = new AtomicInteger();
+		Object listener = new Object() {
+			@Subscribe
+			public void receive(GenerationEventBatch batch) {
+				events.addAll(batch.getEvents());
+				threads.add(Thread.currentThread());
+				largestBatch.set(Math.max(largestBatch.get(), batch
+						.getEvents().size()));
+			}
+		};
+		GenerationEventPublisher eventPublisher = javaTransformer
+				.getEventPublisher();
+		eventPublisher.setMaxBatchSize(2);
+		eventPublisher.register(listener);
+		javaTransformer.setParallelism(4);
+		javaTransformer.transform(context);
+
+		assertEquals(3 * serial.size(), events.size());
+		Map<String, List<GenerationEvent.Type>> types = new HashMap<String, List<GenerationEvent.Type>>();
+		for (GenerationEvent event : events) {
+			List<GenerationEvent.Type> classTypes = types.get(event
+					.getFileName());
+			if (classTypes == null) {
+				classTypes = new ArrayList<GenerationEvent.Type>();
+				types.put(event.getFileName(), classTypes);
+			}
+			classTypes.add(event.getType());
+		}
+		assertEquals(serial.size(), types.size());
+		// The events of each class come in order, whichever thread
+		// generated it
+		for (List<GenerationEvent.Type> classTypes : types.values()) {
+			assertEquals(Arrays.asList(GenerationEvent.Type.BEFORE_GENERATE,
+					GenerationEvent.Type.AFTER_FORMAT,
+					GenerationEvent.Type.AFTER_WRITE), classTypes);
+		}
+		assertTrue(largestBatch.get() <= 2);
+		assertFalse(threads.contains(Thread.currentThread()));
+	}
+
+	/**
+	 * Generate a model with enough classes for the pool to split the work
+	 * and to fill the queues of the pipeline, on the calling thread.
+	 */
+	private Map<String, String> transformSerially() throws IOException {
+		File model = new SyntheticModelBuilder().packageDepth(2)
+				.enumerationClasses(40).literalsPerEnumeration(3)
+				.save(new File(folder.newFolder("model"), "model.uml"));
+		context.setSourceModel(model.getAbsolutePath());
+		context.setTargetModel(folder.newFolder("serial").getPath());
+		javaTransformer.transform(context);
+		Map<String, String> serial = TestFiles.readFiles(new File(context
+				.getTargetModel()));
+		assertEquals(40, serial.size());
+		return serial;
+	}
+}
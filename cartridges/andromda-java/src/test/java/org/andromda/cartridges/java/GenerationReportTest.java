@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.inject.Inject;
+
+import org.jukito.JukitoRunner;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import de.crowdcode.kissmda.core.Context;
+import de.crowdcode.kissmda.core.StandardContext;
+
+/**
+ * Tests of the report of a transformation run.
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@RunWith(JukitoRunner.class)
+public class GenerationReportTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Inject
+	private JavaTransformer javaTransformer;
+
+	@Test
+	public void testReportIsWrittenToTargetDirectory() throws IOException {
+		File targetDirectory = folder.newFolder("java");
+		Context context = new StandardContext();
+		context.setSourceModel(TestFiles.getTestModel());
+		context.setTargetModel(targetDirectory.getPath());
+		javaTransformer.transform(context);
+
+		GenerationReport report = javaTransformer.getReport();
+		assertEquals(1, report.getClassesGenerated());
+		assertTrue(report.getElementsVisited() > 0);
+		assertTrue(report.getStereotypesMatched() >= 2);
+		assertTrue(report.getCharsFormatted() > 0);
+		assertTrue(report.getWallNanos(GenerationReport.Phase.LOAD) > 0);
+		assertTrue(report.getWallNanos(GenerationReport.Phase.FORMAT) > 0);
+		assertEquals(1, report.getSlowestClasses().size());
+		assertEquals("org.andromda.EnumClass", report.getSlowestClasses()
+				.get(0).getKey());
+
+		String json = TestFiles.read(new File(targetDirectory,
+				GenerationReport.FILE_NAME));
+		assertTrue(json.contains("\"format\": { \"wallMillis\": "));
+		assertTrue(json.contains("\"classesGenerated\": 1"));
+		assertTrue(json.contains("\"name\": \"org.andromda.EnumClass\""));
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.uml2.uml.LiteralString;
+import org.eclipse.uml2.uml.Model;
+import org.eclipse.uml2.uml.PrimitiveType;
+import org.eclipse.uml2.uml.Property;
+import org.eclipse.uml2.uml.UMLFactory;
+import org.eclipse.uml2.uml.UMLPackage;
+import org.jukito.JukitoRunner;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import de.crowdcode.kissmda.core.Context;
+import de.crowdcode.kissmda.core.StandardContext;
+
+/**
+ * Tests of the incremental generation: classes whose fingerprint did not
+ * change are skipped, files whose content did not change are left untouched
+ * and files of deleted classifiers are removed.
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@RunWith(JukitoRunner.class)
+public class IncrementalGenerationTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Inject
+	private JavaTransformer javaTransformer;
+
+	private Context context;
+
+	private File targetDirectory;
+
+	@Before
+	public void setUp() throws Exception {
+		context = new StandardContext();
+		targetDirectory = folder.newFolder("java");
+		context.setTargetModel(targetDirectory.getPath());
+	}
+
+	@Test
+	public void testIncrementalGenerationSkipsUnchangedClasses()
+			throws IOException {
+		context.setSourceModel(TestFiles.getTestModel());
+		javaTransformer.transform(context);
+
+		File enumFile = new File(targetDirectory, "org/andromda/EnumClass.java");
+		assertTrue(enumFile.isFile());
+		assertTrue(enumFile.setLastModified(1000L));
+
+		// A class generated by an earlier run for a deleted classifier
+		File staleFile = new File(targetDirectory, "org/andromda/Stale.java");
+		Files.write(staleFile.toPath(), "stale".getBytes("UTF-8"));
+		File manifestFile = new File(targetDirectory,
+				GenerationManifest.FILE_NAME);
+		Files.write(manifestFile.toPath(), "org.andromda.Stale=0\n".getBytes(
+				"UTF-8"), StandardOpenOption.APPEND);
+
+		javaTransformer.transform(context);
+		assertEquals(1000L, enumFile.lastModified());
+		assertFalse(staleFile.exists());
+		assertEquals(1, javaTransformer.getStatistics().getSkipped());
+	}
+
+	@Test
+	public void testChangedMultiplicityGeneratesTheClassAgain()
+			throws IOException {
+		Model model = new SyntheticModelBuilder().packageDepth(0)
+				.enumerationClasses(1).literalsPerEnumeration(2).build(
+						new ModelLoader().createResourceSet(),
+						URI.createURI("multiplicity.uml"));
+		Model library = UMLFactory.eINSTANCE.createModel();
+		library.setName("PrimitiveTypes");
+		PrimitiveType integerType = library.createOwnedPrimitiveType("Integer");
+		org.eclipse.uml2.uml.Class clazz = (org.eclipse.uml2.uml.Class) model
+				.getOwnedType("Enumeration0");
+		for (Property literal : clazz.getOwnedAttributes()) {
+			literal.setType(integerType);
+			literal.setDefault("1");
+		}
+		javaTransformer.transform(context, model);
+		Map<String, String> files = TestFiles.readFiles(targetDirectory);
+		assertEquals(1, files.size());
+		assertTrue(files.values().iterator().next()
+				.contains("private final int enumValue;"));
+
+		// Only the multiplicity changes, [1] to [0..1]
+		for (Property literal : clazz.getOwnedAttributes()) {
+			literal.setLower(0);
+		}
+		javaTransformer.transform(context, model);
+		assertEquals(0, javaTransformer.getStatistics().getSkipped());
+		assertEquals(1, javaTransformer.getStatistics().getWritten());
+		assertTrue(TestFiles.readFiles(targetDirectory).values().iterator()
+				.next().contains("private final Integer enumValue;"));
+	}
+
+	@Test
+	public void testEmptyDefaultChangesTheFingerprint() {
+		Model model = UMLFactory.eINSTANCE.createModel();
+		model.setName("defaults");
+		PrimitiveType stringType = model.createOwnedPrimitiveType("String");
+		org.eclipse.uml2.uml.Class clazz = model.createOwnedClass("Text",
+				false);
+		Property literal = clazz.createOwnedAttribute("literal", stringType);
+		String withoutDefault = GenerationManifest.fingerprint(clazz,
+				"defaults", "1", "2");
+
+		// The literal named value becomes an empty one
+		LiteralString empty = (LiteralString) literal.createDefaultValue(null,
+				stringType, UMLPackage.Literals.LITERAL_STRING);
+		empty.setValue("");
+		assertFalse(withoutDefault.equals(GenerationManifest.fingerprint(
+				clazz, "defaults", "1", "2")));
+	}
+
+	@Test
+	public void testWriteIfChangedKeepsIdenticalFiles() throws IOException {
+		context.setSourceModel(TestFiles.getTestModel());
+		javaTransformer.setIncremental(false);
+		javaTransformer.transform(context);
+		File enumFile = new File(targetDirectory,
+				"org/andromda/EnumClass.java");
+		assertTrue(enumFile.setLastModified(1000L));
+
+		javaTransformer.transform(context);
+		assertEquals(1000L, enumFile.lastModified());
+		assertEquals(0, javaTransformer.getStatistics().getWritten());
+		assertEquals(1, javaTransformer.getStatistics().getUnchanged());
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of the {@link JavaCodeFormatter}, its profiles and its cache.
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class JavaCodeFormatterTest {
+
+	private static final String SOURCE = "package a; public class A { private int b; }";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testFormatterIsSafeForParallelCallers() throws Exception {
+		final JavaCodeFormatter formatter = new JavaCodeFormatter();
+		final String source = "package a; public class A { private int b; "
+				+ "public int getB() { return b; } }";
+		final String expected = formatter.format(source);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<String>> results = new ArrayList<Future<String>>();
+			for (int i = 0; i < 200; i++) {
+				results.add(executor.submit(new Callable<String>() {
+					@Override
+					public String call() {
+						return formatter.format(source);
+					}
+				}));
+			}
+			for (Future<String> result : results) {
+				assertEquals(expected, result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testFormatterProfileFromEclipseSettings() throws Exception {
+		File settingsFile = TestFiles
+				.getResource("formatter/spaces-formatter.xml");
+		FormatterProfile profile = FormatterProfile.load("1.7", settingsFile);
+		assertEquals("space", profile.getOptions().get(
+				"org.eclipse.jdt.core.formatter.tabulation.char"));
+		assertEquals(profile, FormatterProfile.load("1.7", settingsFile));
+		assertFalse(profile.getFingerprint().equals(
+				FormatterProfile.forComplianceLevel("1.7").getFingerprint()));
+
+		JavaCodeFormatter formatter = new JavaCodeFormatter();
+		assertTrue(formatter.format(SOURCE).contains("\tprivate int b;"));
+		String defaultVersion = formatter.getVersion();
+		formatter.setProfile(profile);
+		assertTrue(formatter.format(SOURCE).contains("\n    private int b;"));
+		assertFalse(defaultVersion.equals(formatter.getVersion()));
+
+		// Switching the mode formats all classes again
+		formatter.setProfile(FormatterProfile.DEFAULT);
+		formatter.setMode(FormatterMode.LIGHTWEIGHT);
+		assertFalse(defaultVersion.equals(formatter.getVersion()));
+	}
+
+	@Test
+	public void testOnlyComplianceProfilesHaveTheDefaultStyle()
+			throws IOException {
+		// A loaded profile is left to JDT, even without any settings
+		File settingsFile = folder.newFile("empty-formatter.xml");
+		Files.write(settingsFile.toPath(), ("<profiles version=\"12\">"
+				+ "<profile kind=\"CodeFormatterProfile\" name=\"empty\"/>"
+				+ "</profiles>").getBytes("UTF-8"));
+		FormatterProfile loaded = FormatterProfile.load("1.7", settingsFile);
+		assertEquals(3, loaded.getOptions().size());
+		assertFalse(loaded.isDefaultStyle());
+		assertTrue(FormatterProfile.forComplianceLevel("1.7").isDefaultStyle());
+		assertTrue(FormatterProfile.DEFAULT.isDefaultStyle());
+	}
+
+	@Test
+	public void testFormatterCacheReturnsStoredSource() throws IOException {
+		File cacheDirectory = folder.newFolder("cache");
+		String key = FormatterCache.key(
+				new JavaCodeFormatter().getVersion(), SOURCE);
+
+		JavaCodeFormatter formatter = new JavaCodeFormatter();
+		FormatterCache cache = new FormatterCache(cacheDirectory);
+		formatter.setCache(cache);
+		String formatted = formatter.format(SOURCE);
+		assertEquals(formatted, formatter.format(SOURCE));
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.getHits());
+
+		// A later build reads the entry instead of formatting
+		Files.write(new File(cacheDirectory, key + ".fmt").toPath(),
+				"cached".getBytes("UTF-8"));
+		cache = new FormatterCache(cacheDirectory);
+		formatter.setCache(cache);
+		assertEquals("cached", formatter.format(SOURCE));
+		assertEquals(1, cache.getHits());
+
+		// Another profile formats again
+		formatter.setProfile(FormatterProfile.forComplianceLevel("1.7"));
+		assertEquals(formatted, formatter.format(SOURCE));
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void testFormatterCacheEvictsLeastRecentlyUsed() throws IOException {
+		File cacheDirectory = folder.newFolder("cache");
+		FormatterCache cache = new FormatterCache(cacheDirectory, 10);
+		cache.put("first", "12345");
+		cache.put("second", "12345");
+		assertEquals("12345", cache.get("first"));
+		cache.put("third", "12345");
+
+		assertEquals(1, cache.getEvictions());
+		assertEquals(10, cache.getSize());
+		assertEquals(null, cache.get("second"));
+		assertEquals("12345", cache.get("first"));
+		assertEquals("12345", cache.get("third"));
+		assertFalse(new File(cacheDirectory, "second.fmt").exists());
+	}
+
+	@Test
+	public void testFormatterCacheLeavesNoTemporaryFiles() throws IOException {
+		File cacheDirectory = folder.newFolder("cache");
+		File leftover = new File(cacheDirectory, "killed.tmp");
+		assertTrue(leftover.createNewFile());
+		// The entry cannot replace a directory which is not empty
+		File blocked = new File(cacheDirectory, "blocked.fmt");
+		assertTrue(new File(blocked, "child").mkdirs());
+
+		FormatterCache cache = new FormatterCache(cacheDirectory);
+		cache.put("blocked", "12345");
+		assertEquals(null, cache.get("blocked"));
+		cache.put("written", "12345");
+		assertEquals("12345", cache.get("written"));
+
+		assertFalse(leftover.exists());
+		for (String name : cacheDirectory.list()) {
+			assertFalse(name, name.endsWith(".tmp"));
+		}
+	}
+}
@@ -0,0 +1,242 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import javax.inject.Inject;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.uml2.uml.Classifier;
+import org.eclipse.uml2.uml.Model;
+import org.jukito.JukitoRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Differential tests of the {@link LightweightJavaFormatter}: whatever it
+ * formats must be formatted exactly like the {@link JavaCodeFormatter} does
+ * with JDT.
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@RunWith(JukitoRunner.class)
+public class LightweightJavaFormatterTest {
+
+	private static final String LINE_SEPARATOR = System
+			.getProperty("line.separator");
+
+	private static final String[] WORDS = { "a", "of", "the", "value",
+			"enumeration", "literal", "<code>code</code>", "<code>two  words</code>",
+			"&amp;", "x.y", "(note)", "end.", "Supercalifragilisticexpialidocious",
+			"ção" };
+
+	@Inject
+	private EnumClassGenerator enumClassGenerator;
+
+	private final JavaCodeFormatter javaCodeFormatter = new JavaCodeFormatter();
+
+	private final LightweightJavaFormatter lightweightFormatter = new LightweightJavaFormatter();
+
+	@Test
+	public void testGeneratedClassesMatchJdt() {
+		// The synthetic enumerations have String values, looked up in a map,
+		// the switch of the int values is formatted in testMethodBlocksMatchJdt
+		for (int commentLength : new int[] { 0, 10, 75, 300 }) {
+			enumClassGenerator.setGenerateCodecs(commentLength % 20 == 10);
+			Model model = new SyntheticModelBuilder()
+					.packageDepth(1)
+					.enumerationClasses(5)
+					.literalsPerEnumeration(
+							commentLength < 75 ? 3
+									: EnumClassGenerator.SWITCH_LOOKUP_MAX_LITERALS + 4)
+					.commentLength(commentLength)
+					.build(new ModelLoader().createResourceSet(),
+							URI.createURI("synthetic.uml"));
+			for (Iterator<EObject> i = model.eAllContents(); i.hasNext();) {
+				EObject eObject = i.next();
+				if (eObject instanceof org.eclipse.uml2.uml.Class) {
+					String source = enumClassGenerator
+							.generateEnumClass((Classifier) eObject);
+					String formatted = lightweightFormatter.format(source,
+							LINE_SEPARATOR);
+					assertNotNull(source, formatted);
+					assertEquals(javaCodeFormatter.format(source), formatted);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testCommentsMatchJdt() {
+		List<String> comments = new ArrayList<String>(Arrays.asList("one",
+				"  leading and trailing spaces  ",
+				"several   spaces\tand a tab", "two\n\nparagraphs\n"));
+		Random random = new Random(42);
+		for (int i = 0; i < 300; i++) {
+			StringBuilder comment = new StringBuilder();
+			int words = 1 + random.nextInt(40);
+			for (int j = 0; j < words; j++) {
+				comment.append(j > 0 && random.nextInt(10) == 0 ? "\n" : " ");
+				if (random.nextInt(4) == 0) {
+					char[] letters = new char[1 + random.nextInt(15)];
+					Arrays.fill(letters, 'w');
+					comment.append(letters);
+				} else {
+					comment.append(WORDS[random.nextInt(WORDS.length)]);
+				}
+			}
+			comments.add(comment.toString());
+		}
+		for (String comment : comments) {
+			for (String depth : new String[] { "", "\t\t" }) {
+				String source = enumSource(comment, depth);
+				String lightweight = lightweightFormatter.format(source,
+						LINE_SEPARATOR);
+				assertNotNull(source, lightweight);
+				assertEquals(source, javaCodeFormatter.format(source),
+						lightweight);
+			}
+		}
+
+		// Left to JDT
+		for (String comment : Arrays.asList("", " * ", "<code>not   closed",
+				"a <b>bold</b> word", "@see Other", "{@link Other}",
+				"* a list item", "x > y")) {
+			assertNull(lightweightFormatter.format(enumSource(comment, ""),
+					LINE_SEPARATOR));
+		}
+	}
+
+	@Test
+	public void testEnumConstantsMatchJdt() {
+		Random random = new Random(42);
+		for (int i = 0; i < 200; i++) {
+			StringBuilder source = new StringBuilder("package a;\npublic enum E {\n");
+			int constants = 1 + random.nextInt(15);
+			for (int j = 0; j < constants; j++) {
+				if (random.nextInt(6) == 0) {
+					source.append("/**\n * Constant ").append(j)
+							.append("\n */\n");
+				}
+				char[] name = new char[1 + random.nextInt(20)];
+				Arrays.fill(name, 'C');
+				source.append(name).append(j);
+				switch (random.nextInt(4)) {
+				case 0:
+					break;
+				case 1:
+					source.append('(').append(random.nextInt(100000))
+							.append("L)");
+					break;
+				default:
+					source.append("(\"").append(name).append(j)
+							.append("\")");
+				}
+				source.append(j + 1 < constants ? ",\n" : ";\n");
+			}
+			source.append("private final String enumValue;\n}\n");
+			String lightweight = lightweightFormatter.format(
+					source.toString(), LINE_SEPARATOR);
+			assertNotNull(source.toString(), lightweight);
+			assertEquals(source.toString(),
+					javaCodeFormatter.format(source.toString()), lightweight);
+		}
+	}
+
+	@Test
+	public void testMethodBlocksMatchJdt() {
+		String source = "package a;\nimport java.util.List;\npublic class C {\n"
+				+ "public static Integer f(List<String> values, int key) {\n"
+				+ "int count = 0;\n"
+				+ "for (String value : values) {\n"
+				+ "if (!value.isEmpty()) {\n"
+				+ "count = add(count, value.length());\n"
+				+ "}\n"
+				+ "}\n"
+				+ "while (count != 0) {\n"
+				+ "count = Math.max(0, Math.min(count, key));\n"
+				+ "}\n"
+				+ "switch (key) {\n"
+				+ "case -1 :\n"
+				+ "case 1 :\n"
+				+ "count = 1;\n"
+				+ "return count;\n"
+				+ "default :\n"
+				+ "return Integer.valueOf(count);\n"
+				+ "}\n"
+				+ "}\n"
+				+ "}\n";
+		String lightweight = lightweightFormatter.format(source, LINE_SEPARATOR);
+		assertNotNull(lightweight);
+		assertEquals(javaCodeFormatter.format(source), lightweight);
+
+		// Left to JDT
+		for (String body : Arrays.asList("if (a) {\nf();\n} else {\ng();\n}\n",
+				"switch (a) {\ncase 1 : {\nf();\n}\n}\n",
+				"switch (a) {\ncase 1:\nf();\n}\n")) {
+			assertNull(body, lightweightFormatter.format(
+					"package a;\npublic class C {\npublic void m() {\n" + body
+							+ "}\n}\n", LINE_SEPARATOR));
+		}
+	}
+
+	@Test
+	public void testUnknownCodeIsLeftToJdt() {
+		String source = "package a;\npublic enum E {\nA(1);\n@Deprecated\n"
+				+ "public int f() { return 1; }\n}\n";
+		assertNull(lightweightFormatter.format(source, LINE_SEPARATOR));
+		assertNull(lightweightFormatter.format(
+				"package a;\npublic enum E {\nA(1);\n\n}\n", LINE_SEPARATOR));
+		assertNull(lightweightFormatter
+				.format("package a;\npublic enum E {\npublic static VeryLongEnumerationClassNameForWrapping fromString(String value) { return VeryLongEnumerationClassNameForWrapping.valueOf(value); }\n}\n",
+						LINE_SEPARATOR));
+
+		JavaCodeFormatter formatter = new JavaCodeFormatter();
+		formatter.setMode(FormatterMode.LIGHTWEIGHT);
+		assertEquals(javaCodeFormatter.format(source), formatter.format(source));
+	}
+
+	private String enumSource(String comment, String depth) {
+		StringBuilder source = new StringBuilder();
+		source.append("/**\n * Header\n */\npackage a.b;\n");
+		source.append("public enum E {\n");
+		source.append(depth).append("/**\n");
+		for (String line : comment.split("\n", -1)) {
+			source.append(depth).append(" * ").append(line).append('\n');
+		}
+		source.append(depth).append(" */\n");
+		source.append("A(\"A\");\n");
+		source.append("private final String enumValue;\n");
+		source.append("private E(String value) { this.enumValue = value; }\n");
+		source.append("}\n");
+		return source.toString();
+	}
+}
@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.jukito.JukitoRunner;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import de.crowdcode.kissmda.core.Context;
+import de.crowdcode.kissmda.core.StandardContext;
+
+/**
+ * Tests of the ways a model is loaded: from the binary model cache, again
+ * whenever it changes in watch mode and next to other models in a batch.
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@RunWith(JukitoRunner.class)
+public class ModelLoadingTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Inject
+	private JavaTransformer javaTransformer;
+
+	@Inject
+	private ModelWatcher modelWatcher;
+
+	@Inject
+	private BatchTransformer batchTransformer;
+
+	private Context context;
+
+	@Before
+	public void setUp() throws Exception {
+		context = new StandardContext();
+	}
+
+	@Test
+	public void testModelCacheIsUsedUntilAProfileChanges() throws IOException {
+		// Work on a copy of the model, one of its profiles is changed
+		File modelDirectory = TestFiles.copyModel(folder.newFolder("model"));
+		File cacheDirectory = folder.newFolder("cache");
+		File modelFile = new File(modelDirectory, "test-uml.uml");
+		File indexFile = new ModelCache(cacheDirectory).getIndexFile(URI
+				.createFileURI(modelFile.getAbsolutePath()));
+		context.setSourceModel(modelFile.getAbsolutePath());
+		File uncachedDirectory = folder.newFolder("uncached");
+		context.setTargetModel(uncachedDirectory.getPath());
+		javaTransformer.transform(context);
+
+		javaTransformer.setModelCacheDirectory(cacheDirectory);
+		javaTransformer.transform(context);
+		assertTrue(indexFile.isFile());
+		assertTrue(indexFile.setLastModified(1000L));
+
+		// Loaded from the cache, which is not written again
+		File cachedDirectory = folder.newFolder("cached");
+		context.setTargetModel(cachedDirectory.getPath());
+		javaTransformer.transform(context);
+		assertEquals(1000L, indexFile.lastModified());
+
+		Files.write(new File(modelDirectory,
+				"kissmda-profile-core.profile.uml").toPath(),
+				"\n".getBytes("UTF-8"), StandardOpenOption.APPEND);
+		javaTransformer.transform(context);
+		assertFalse(indexFile.lastModified() == 1000L);
+
+		Map<String, String> uncached = TestFiles.readFiles(uncachedDirectory);
+		assertTrue(uncached.containsKey("/org/andromda/EnumClass.java"));
+		assertEquals(uncached, TestFiles.readFiles(cachedDirectory));
+	}
+
+	@Test
+	public void testModelsShareACacheDirectory() throws IOException {
+		File cacheDirectory = folder.newFolder("cache");
+		ModelCache cache = new ModelCache(cacheDirectory);
+		File[] modelFiles = {
+				new File(TestFiles.copyModel(folder.newFolder("first")),
+						"test-uml.uml"),
+				new File(TestFiles.copyModel(folder.newFolder("second")),
+						"test-uml.uml") };
+		javaTransformer.setModelCacheDirectory(cacheDirectory);
+		context.setTargetModel(folder.newFolder("java").getPath());
+		for (File modelFile : modelFiles) {
+			context.setSourceModel(modelFile.getAbsolutePath());
+			javaTransformer.transform(context);
+		}
+
+		// Both models are loaded from the cache, neither evicts the other
+		for (File modelFile : modelFiles) {
+			File indexFile = cache.getIndexFile(URI.createFileURI(modelFile
+					.getAbsolutePath()));
+			assertTrue(indexFile.isFile());
+			assertTrue(indexFile.setLastModified(1000L));
+		}
+		for (File modelFile : modelFiles) {
+			context.setSourceModel(modelFile.getAbsolutePath());
+			javaTransformer.transform(context);
+		}
+		for (File modelFile : modelFiles) {
+			assertEquals(1000L, cache.getIndexFile(
+					URI.createFileURI(modelFile.getAbsolutePath()))
+					.lastModified());
+		}
+	}
+
+	@Test
+	public void testWatchModeRegeneratesChangedModel() throws Exception {
+		File modelDirectory = TestFiles.copyModel(folder.newFolder("model"));
+		File modelFile = new File(modelDirectory, "test-uml.uml");
+		File targetDirectory = folder.newFolder("java");
+		File enumFile = new File(targetDirectory, "org/andromda/EnumClass.java");
+		context.setSourceModel(modelFile.getAbsolutePath());
+		context.setTargetModel(targetDirectory.getPath());
+		Thread thread = startWatching();
+		try {
+			awaitGenerations(1);
+			assertFalse(TestFiles.read(enumFile).contains("theAttr1 watched"));
+
+			String model = TestFiles.read(modelFile);
+			Files.write(modelFile.toPath(), model.replace(
+					"theAttr1 documentation", "theAttr1 watched").getBytes(
+					"UTF-8"));
+			awaitGenerations(2);
+			assertTrue(TestFiles.read(enumFile).contains("theAttr1 watched"));
+		} finally {
+			modelWatcher.stop();
+			thread.join(10000);
+		}
+		assertFalse(thread.isAlive());
+	}
+
+	@Test
+	public void testWatchModeSkipsAModelWhichCannotBeLoaded()
+			throws Exception {
+		File modelDirectory = TestFiles.copyModel(folder.newFolder("model"));
+		File modelFile = new File(modelDirectory, "test-uml.uml");
+		File targetDirectory = folder.newFolder("java");
+		File enumFile = new File(targetDirectory, "org/andromda/EnumClass.java");
+		context.setSourceModel(modelFile.getAbsolutePath());
+		context.setTargetModel(targetDirectory.getPath());
+		String model = TestFiles.read(modelFile);
+		Thread thread = startWatching();
+		try {
+			awaitGenerations(1);
+			// Half written, the model is not transformed
+			Files.write(modelFile.toPath(),
+					model.substring(0, model.length() / 2).getBytes("UTF-8"));
+			Thread.sleep(1000);
+			assertEquals(1, modelWatcher.getGenerations());
+
+			Files.write(modelFile.toPath(), model.replace(
+					"theAttr1 documentation", "theAttr1 watched").getBytes(
+					"UTF-8"));
+			awaitGenerations(2);
+			assertTrue(TestFiles.read(enumFile).contains("theAttr1 watched"));
+		} finally {
+			modelWatcher.stop();
+			thread.join(10000);
+		}
+		assertFalse(thread.isAlive());
+	}
+
+	@Test
+	public void testBatchTransformsEachModel() throws IOException {
+		Context first = new StandardContext();
+		first.setSourceModel(TestFiles.getTestModel());
+		first.setTargetModel(folder.newFolder("first").getPath());
+		Context second = new StandardContext();
+		second.setSourceModel(TestFiles.getTestModel());
+		second.setTargetModel(folder.newFolder("second").getPath());
+
+		batchTransformer.transform(Arrays.asList(first, second));
+
+		BatchStatistics statistics = batchTransformer.getStatistics();
+		assertEquals(2, statistics.getEntries().size());
+		Map<String, String> firstFiles = TestFiles.readFiles(new File(first
+				.getTargetModel()));
+		Map<String, String> secondFiles = TestFiles.readFiles(new File(second
+				.getTargetModel()));
+		assertTrue(firstFiles.containsKey("/org/andromda/EnumClass.java"));
+		assertEquals(firstFiles, secondFiles);
+	}
+
+	@Test
+	public void testBatchModelsShareOnlyTheirProfiles() {
+		ModelLoader modelLoader = new ModelLoader();
+		ResourceSet profiles = modelLoader.createResourceSet();
+		ResourceSet first = modelLoader.createResourceSet(profiles);
+		modelLoader.load(first, new File(TestFiles.getTestModel()));
+		ResourceSet second = modelLoader.createResourceSet(profiles);
+		modelLoader.load(second, new File(TestFiles.getTestModel()));
+
+		assertFalse(profiles.getResources().isEmpty());
+		for (Resource resource : profiles.getResources()) {
+			assertFalse(first.getResources().contains(resource));
+			assertFalse(second.getResources().contains(resource));
+		}
+		// Each model is loaded into its own resource set
+		assertEquals(1, first.getResources().size());
+		assertEquals(1, second.getResources().size());
+		assertFalse(first.getResources().get(0) == second.getResources()
+				.get(0));
+	}
+
+	private Thread startWatching() {
+		final Context watchContext = context;
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					modelWatcher.watch(watchContext);
+				} catch (IOException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		});
+		thread.start();
+		return thread;
+	}
+
+	private void awaitGenerations(int generations) throws InterruptedException {
+		long timeout = System.currentTimeMillis() + 30000;
+		while (modelWatcher.getGenerations() < generations) {
+			assertTrue(System.currentTimeMillis() < timeout);
+			Thread.sleep(20);
+		}
+	}
+}
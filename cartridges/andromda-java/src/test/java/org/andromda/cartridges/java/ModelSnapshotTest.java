@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.uml2.uml.Classifier;
+import org.eclipse.uml2.uml.Element;
+import org.eclipse.uml2.uml.Model;
+import org.eclipse.uml2.uml.PrimitiveType;
+import org.eclipse.uml2.uml.UMLFactory;
+import org.eclipse.uml2.uml.UMLPackage;
+import org.jukito.JukitoRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import de.crowdcode.kissmda.core.Context;
+import de.crowdcode.kissmda.core.StandardContext;
+import de.crowdcode.kissmda.core.uml.PackageHelper;
+
+/**
+ * Tests of the {@link ModelSnapshot}: the classes generated and the
+ * fingerprints computed from a snapshot must be the ones of the model it was
+ * extracted from.
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@RunWith(JukitoRunner.class)
+public class ModelSnapshotTest {
+
+	@Inject
+	private PackageHelper packageHelper;
+
+	@Inject
+	private EnumClassGenerator enumClassGenerator;
+
+	@Test
+	public void testModelSnapshotCompletesEnclosingClassifiers() {
+		Model model = UMLFactory.eINSTANCE.createModel();
+		model.setName("nested");
+		PrimitiveType stringType = model.createOwnedPrimitiveType("String");
+		org.eclipse.uml2.uml.Class outer = model.createOwnedClass("Outer",
+				false);
+		outer.createOwnedAttribute("first", stringType);
+		outer.createOwnedAttribute("second", stringType);
+		org.eclipse.uml2.uml.Class inner = (org.eclipse.uml2.uml.Class) outer
+				.createNestedClassifier("Inner", UMLPackage.Literals.CLASS);
+		inner.createOwnedAttribute("only", stringType);
+
+		// The nested enumeration is found first, which adds the enclosing one
+		// as its namespace
+		ModelSnapshot.Builder builder = new ModelSnapshot.Builder();
+		int innerIndex = builder.add(inner, "nested.inner");
+		int outerIndex = builder.add(outer, "nested");
+		assertEquals(innerIndex, builder.add(inner, "nested.inner"));
+		ModelSnapshot snapshot = builder.build();
+		assertEquals(outerIndex, snapshot.getParent(innerIndex));
+		assertEquals("nested", snapshot.getPackageName(outerIndex));
+		assertEquals("nested.inner", snapshot.getPackageName(innerIndex));
+		assertEquals(2, snapshot.getAttributeEnd(outerIndex)
+				- snapshot.getAttributeStart(outerIndex));
+		assertEquals("only", snapshot.getAttributeName(snapshot
+				.getAttributeStart(innerIndex)));
+
+		// The same classes as from a snapshot of the enclosing one alone
+		ModelSnapshot.Builder outerBuilder = new ModelSnapshot.Builder();
+		int outerOnly = outerBuilder.add(outer, "nested");
+		assertEquals(enumClassGenerator.generateEnumClass(
+				outerBuilder.build(), outerOnly),
+				enumClassGenerator.generateEnumClass(snapshot, outerIndex));
+	}
+
+	@Test
+	public void testModelSnapshotOutlivesTheModel() throws Exception {
+		Context context = new StandardContext();
+		context.setSourceModel(TestFiles.getTestModel());
+		org.eclipse.uml2.uml.Package rootPackage = packageHelper
+				.getRootPackage(context);
+		String enumeration = "kissmda-profile-core::Enumeration";
+		ModelSnapshot.Builder builder = new ModelSnapshot.Builder(enumeration);
+		List<Integer> elements = new ArrayList<Integer>();
+		List<String> expected = new ArrayList<String>();
+		List<String> fingerprints = new ArrayList<String>();
+		for (Element element : ModelTraversal.of(rootPackage)
+				.descendInto(ModelTraversal.PACKAGES_AND_CLASSIFIERS)
+				.include(ModelTraversal.PACKAGES_AND_CLASSIFIERS)) {
+			if (!(element instanceof Classifier)
+					|| ((Classifier) element).getAppliedStereotype(enumeration) == null) {
+				continue;
+			}
+			Classifier clazz = (Classifier) element;
+			String packageName = enumClassGenerator.getJavaPackageName(clazz);
+			int index = builder.add(clazz, packageName);
+			assertEquals(index, builder.add(clazz, packageName));
+			elements.add(index);
+			expected.add(enumClassGenerator.generateEnumClass(clazz));
+			fingerprints.add(GenerationManifest.fingerprint(clazz, packageName,
+					"1", "2"));
+			ModelSnapshot snapshot = builder.build();
+			assertEquals(clazz.getQualifiedName(),
+					snapshot.getQualifiedName(index));
+			assertEquals(clazz.getNamespace().getName(),
+					snapshot.getName(snapshot.getParent(index)));
+			assertTrue(snapshot.isApplied(index, enumeration));
+			assertFalse(snapshot.isApplied(snapshot.getParent(index),
+					enumeration));
+		}
+		assertFalse(elements.isEmpty());
+		ModelSnapshot snapshot = builder.build();
+
+		// Nothing is read from the model once it is unloaded
+		for (Resource resource : rootPackage.eResource().getResourceSet()
+				.getResources()) {
+			resource.unload();
+		}
+		Map<String, String> pooled = new HashMap<String, String>();
+		for (int i = 0; i < elements.size(); i++) {
+			int index = elements.get(i);
+			assertEquals(expected.get(i),
+					enumClassGenerator.generateEnumClass(snapshot, index));
+			assertEquals(fingerprints.get(i), GenerationManifest.fingerprint(
+					snapshot, index, snapshot.getPackageName(index), "1", "2"));
+			for (int attribute = snapshot.getAttributeStart(index); attribute < snapshot
+					.getAttributeEnd(index); attribute++) {
+				String typeName = snapshot.getAttributeTypeName(attribute);
+				if (!pooled.containsKey(typeName)) {
+					pooled.put(typeName, typeName);
+				}
+				assertSame(pooled.get(typeName), typeName);
+			}
+		}
+	}
+}
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.logging.Logger;
+
+import javax.inject.Inject;
+
+import org.jukito.JukitoRunner;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import de.crowdcode.kissmda.core.Context;
+import de.crowdcode.kissmda.core.StandardContext;
+import de.crowdcode.kissmda.core.TransformerException;
+
+/**
+ * Scale tests of the Java transformer on synthetic models. The model is
+ * transformed at two sizes and the time per class is compared, so a
+ * transformation which became quadratic fails however fast the build machine
+ * is. The number of classes of the smaller model can be raised with the
+ * system property <code>andromda.scale.classes</code>.
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@RunWith(JukitoRunner.class)
+public class ScaleTest {
+
+	private static final Logger logger = Logger.getLogger(ScaleTest.class
+			.getName());
+
+	private static final int ENUMERATION_CLASSES = Integer.getInteger(
+			"andromda.scale.classes", 200);
+
+	/**
+	 * The larger model has this many times the classes of the smaller one.
+	 */
+	private static final int SCALE_FACTOR = 4;
+
+	/**
+	 * A linear transformation takes about the same time per class at both
+	 * sizes, a quadratic one {@link #SCALE_FACTOR} times as long.
+	 */
+	private static final double MAX_SLOWDOWN_PER_CLASS = 2.0;
+
+	/**
+	 * The generous ceiling catches a transformation which keeps the model
+	 * several times in memory, not a large model.
+	 */
+	private static final long HEAP_CEILING_BYTES = 512L * 1024 * 1024;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Inject
+	private JavaTransformer javaTransformer;
+
+	private Context context;
+
+	@Before
+	public void setUp() throws Exception {
+		context = new StandardContext();
+	}
+
+	@Test
+	public void testTransformationScalesLinearly() throws IOException,
+			TransformerException, InterruptedException {
+		javaTransformer.setIncremental(false);
+		// Warm up, so the smaller model is not measured with a cold JIT
+		transform(ENUMERATION_CLASSES);
+		long small = transform(ENUMERATION_CLASSES);
+
+		int classes = ENUMERATION_CLASSES * SCALE_FACTOR;
+		System.gc();
+		HeapSampler heapSampler = new HeapSampler();
+		heapSampler.start();
+		long large;
+		try {
+			large = transform(classes);
+		} finally {
+			heapSampler.finish();
+		}
+		double slowdown = (double) large / SCALE_FACTOR / small;
+		logger.info("Transformed " + ENUMERATION_CLASSES + " classes in "
+				+ small / 1000000 + " ms, " + classes + " classes in " + large
+				/ 1000000 + " ms, peak heap " + heapSampler.getPeak()
+				/ (1024 * 1024) + " MB");
+
+		assertTrue("Time per class grew by " + slowdown,
+				slowdown < MAX_SLOWDOWN_PER_CLASS);
+		assertTrue("Peak heap usage was " + heapSampler.getPeak() + " bytes",
+				heapSampler.getPeak() < HEAP_CEILING_BYTES);
+
+		// Nothing changed, the incremental run generates nothing
+		javaTransformer.setIncremental(true);
+		long start = System.nanoTime();
+		javaTransformer.transform(context);
+		long incremental = System.nanoTime() - start;
+		logger.info("Incremental run in " + incremental / 1000000 + " ms");
+
+		assertEquals(0, javaTransformer.getReport().getClassesGenerated());
+		assertEquals(classes, javaTransformer.getStatistics().getSkipped());
+		assertTrue("Incremental run took " + incremental + " ns",
+				incremental < large);
+	}
+
+	@Test
+	public void testSyntheticModelElementCount() {
+		SyntheticModelBuilder builder = new SyntheticModelBuilder()
+				.packageDepth(2).packagesPerLevel(2).enumerationClasses(3)
+				.literalsPerEnumeration(4).commentLength(10);
+		// Model, String type, profile application, 6 packages and 3 classes
+		// with a comment and 4 commented attributes each
+		assertEquals(3 + 6 + 3 * (1 + 1 + 4 * 2), builder.getElementCount());
+	}
+
+	/**
+	 * Transform a synthetic model into an empty target directory.
+	 *
+	 * @return the time of the transformation in nanoseconds
+	 */
+	private long transform(int classes) throws IOException {
+		File directory = folder.newFolder();
+		File model = new SyntheticModelBuilder().packageDepth(4)
+				.packagesPerLevel(3).enumerationClasses(classes)
+				.literalsPerEnumeration(20).commentLength(200)
+				.save(new File(directory, "model.uml"));
+		context.setSourceModel(model.getAbsolutePath());
+		context.setTargetModel(new File(directory, "java").getPath());
+
+		long start = System.nanoTime();
+		javaTransformer.transform(context);
+		long nanos = System.nanoTime() - start;
+
+		assertEquals(classes, javaTransformer.getReport()
+				.getClassesGenerated());
+		assertEquals(classes, javaTransformer.getStatistics().getWritten());
+		return nanos;
+	}
+
+	/**
+	 * Samples the used heap in the background. The pools reach their peaks at
+	 * different times, so only the total used at one moment is meaningful.
+	 */
+	private static final class HeapSampler extends Thread {
+
+		private final MemoryMXBean memory = ManagementFactory
+				.getMemoryMXBean();
+
+		private volatile boolean finished;
+
+		private volatile long peak;
+
+		private HeapSampler() {
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			while (!finished) {
+				peak = Math.max(peak, memory.getHeapMemoryUsage().getUsed());
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		}
+
+		private void finish() throws InterruptedException {
+			finished = true;
+			join();
+		}
+
+		private long getPeak() {
+			return peak;
+		}
+	}
+}
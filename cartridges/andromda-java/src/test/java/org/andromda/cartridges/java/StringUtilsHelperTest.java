@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.text.WordUtils;
+import org.junit.Test;
+
+/**
+ * Differential tests of the word splitting and text formatting of
+ * {@link StringUtilsHelper}: for random strings it must return exactly what
+ * the regular expressions and the wrapping with {@link WordUtils} it replaced
+ * return.
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class StringUtilsHelperTest {
+
+	/**
+	 * The characters of the random strings: capitals, lower case letters,
+	 * digits, white space, dollar signs and other non-word characters.
+	 */
+	private static final String ALPHABET = "ABZaqz09 \t\n\r\u000B\f$_-.éÉ";
+
+	private static final int STRINGS = 20000;
+
+	/**
+	 * The words of the random texts, the long one is never wrapped.
+	 */
+	private static final String[] WORDS = { "a", "of", "the", "value", " ",
+			"  ", "\n", "\r\n", "\r", "\n\n", "\t", "\u0001",
+			"enumeration-literal", "Supercalifragilisticexpialidocious" };
+
+	private static final int TEXTS = 5000;
+
+	private static final String[] EXAMPLES = { null, "", " ", "--", "a",
+			"A", "orderItem", "OrderItem", "ORDER_ITEM", "HTTPServer",
+			"order item 2", " $ a\t\n$b $", "caféOrder", "a-B", "a-",
+			"-a" };
+
+	@Test
+	public void testExamplesMatchRegularExpressions() {
+		for (String string : EXAMPLES) {
+			assertSameResults(string);
+		}
+	}
+
+	@Test
+	public void testRandomStringsMatchRegularExpressions() {
+		Random random = new Random(21);
+		for (int i = 0; i < STRINGS; i++) {
+			char[] chars = new char[random.nextInt(12)];
+			for (int j = 0; j < chars.length; j++) {
+				chars[j] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+			}
+			assertSameResults(new String(chars));
+		}
+	}
+
+	@Test
+	public void testRandomTextsAreFormattedLikeWordUtils() throws IOException {
+		Random random = new Random(22);
+		for (int i = 0; i < TEXTS; i++) {
+			StringBuilder text = new StringBuilder();
+			int words = random.nextInt(40);
+			for (int j = 0; j < words; j++) {
+				text.append(WORDS[random.nextInt(WORDS.length)]).append(
+						random.nextBoolean() ? " " : "");
+			}
+			String plainText = text.toString();
+			String indentation = random.nextBoolean() ? "    * " : "";
+			int wrapAtColumn = 1 + random.nextInt(40);
+			boolean htmlStyle = random.nextBoolean();
+			String expected = format(plainText, indentation, wrapAtColumn,
+					htmlStyle);
+			assertEquals(plainText, expected, StringUtilsHelper.format(
+					plainText, indentation, wrapAtColumn, htmlStyle));
+			StringWriter out = new StringWriter();
+			out.write("existing ");
+			StringUtilsHelper.format(plainText, indentation, wrapAtColumn,
+					htmlStyle, out);
+			assertEquals(plainText, "existing " + expected, out.toString());
+		}
+		StringBuilder out = new StringBuilder();
+		StringUtilsHelper.format(null, "  ", out);
+		assertEquals("  ", out.toString());
+	}
+
+	private void assertSameResults(String string) {
+		String message = String.valueOf(string);
+		if (hasNoWords(string)) {
+			// Separating a string of non-word characters fails
+			assertSeparateFails(string);
+		} else {
+			assertEquals(message, separate(string, "_"),
+					StringUtilsHelper.separate(string, "_"));
+			assertEquals(message, separate(StringUtils.trimToEmpty(string),
+					".").toLowerCase(),
+					StringUtilsHelper.toResourceMessageKey(string));
+			assertEquals(message, StringUtils.capitalize(separate(string, " ")),
+					StringUtilsHelper.toPhrase(string));
+		}
+		assertEquals(message, upperCamelCaseName(string),
+				StringUtilsHelper.upperCamelCaseName(string));
+		assertEquals(message, StringUtils.uncapitalize(upperCamelCaseName(string)),
+				StringUtilsHelper.lowerCamelCaseName(string));
+		assertEquals(message, string == null ? "" : string.replaceAll(
+				"[$\\s]+", " ").trim(), StringUtilsHelper.toSingleLine(string));
+	}
+
+	private static boolean hasNoWords(String string) {
+		return !StringUtils.isBlank(string)
+				&& splitAtNonWordCharacters(string).length == 0;
+	}
+
+	private void assertSeparateFails(String string) {
+		for (int i = 0; i < 3; i++) {
+			try {
+				if (i == 0) {
+					StringUtilsHelper.separate(string, "_");
+				} else if (i == 1) {
+					StringUtilsHelper.toResourceMessageKey(string);
+				} else {
+					StringUtilsHelper.toPhrase(string);
+				}
+				fail("Separated " + string);
+			} catch (ArrayIndexOutOfBoundsException e) {
+				// Expected
+			}
+		}
+	}
+
+	/**
+	 * The splitting with regular expressions the tokenizer replaced.
+	 */
+	private static String[] splitAtNonWordCharacters(String string) {
+		Matcher matcher = Pattern.compile("[A-Z]+").matcher(
+				StringUtils.trimToEmpty(string));
+		StringBuffer buffer = new StringBuffer();
+		while (matcher.find()) {
+			matcher.appendReplacement(buffer, ' ' + matcher.group());
+		}
+		matcher.appendTail(buffer);
+		return buffer.toString().split("[^A-Za-z0-9]+");
+	}
+
+	private static String separate(String string, String separator) {
+		if (StringUtils.isBlank(string)) {
+			return string;
+		}
+		String[] parts = splitAtNonWordCharacters(string);
+		StringBuilder buffer = new StringBuilder();
+		for (int i = 0; i < parts.length - 1; i++) {
+			if (StringUtils.isNotBlank(parts[i])) {
+				buffer.append(parts[i]).append(separator);
+			}
+		}
+		return buffer.append(parts[parts.length - 1]).toString();
+	}
+
+	private static String upperCamelCaseName(String string) {
+		if (StringUtils.isEmpty(string)) {
+			return string;
+		}
+		StringBuilder buffer = new StringBuilder();
+		for (String part : splitAtNonWordCharacters(string)) {
+			buffer.append(part.length() < 2 ? part.toUpperCase() : part
+					.substring(0, 1).toUpperCase() + part.substring(1));
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * The formatting with a reader and {@link WordUtils} the streaming
+	 * formatting replaced.
+	 */
+	private static String format(String plainText, String indentation,
+			int wrapAtColumn, boolean htmlStyle) throws IOException {
+		if (StringUtils.isBlank(plainText)) {
+			return indentation;
+		}
+		String lineSeparator = StringUtilsHelper.getLineSeparator();
+		StringBuilder formattedText = new StringBuilder();
+		BufferedReader reader = new BufferedReader(new StringReader(plainText));
+		String line = reader.readLine();
+		while (line != null) {
+			if (StringUtils.isNotBlank(line)) {
+				if (htmlStyle) {
+					formattedText.append(indentation).append("<p>").append(
+							lineSeparator);
+				}
+				formattedText.append(indentation);
+				formattedText.append(WordUtils.wrap(line.trim(), wrapAtColumn,
+						lineSeparator + indentation, false));
+				if (htmlStyle) {
+					formattedText.append(lineSeparator).append(indentation)
+							.append("</p>");
+				}
+			}
+			line = reader.readLine();
+			if (formattedText.length() > 0 && StringUtils.isNotBlank(line)) {
+				formattedText.append(lineSeparator);
+			}
+		}
+		return formattedText.toString();
+	}
+}
@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.uml2.uml.Class;
+import org.eclipse.uml2.uml.Model;
+import org.eclipse.uml2.uml.NamedElement;
+import org.eclipse.uml2.uml.PrimitiveType;
+import org.eclipse.uml2.uml.Profile;
+import org.eclipse.uml2.uml.Property;
+import org.eclipse.uml2.uml.Stereotype;
+import org.eclipse.uml2.uml.UMLFactory;
+
+/**
+ * Builds UML models of a configurable size with the kissmda core profile
+ * applied, to test how the cartridge scales. The root model is a
+ * <<SourceDirectory>>, below it a tree of packages holds the
+ * <<Enumeration>> classes, spread evenly over the leaf packages.
+ *
+ * <pre>
+ * File model = new SyntheticModelBuilder().packageDepth(4)
+ * 		.enumerationClasses(500).literalsPerEnumeration(20)
+ * 		.save(new File(&quot;target/synthetic/model.uml&quot;));
+ * </pre>
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class SyntheticModelBuilder {
+
+	private static final String PROFILE = "/model/emf/kissmda-profile-core.profile.uml";
+
+	private int packageDepth = 3;
+
+	private int packagesPerLevel = 2;
+
+	private int enumerationClasses = 10;
+
+	private int literalsPerEnumeration = 5;
+
+	private int commentLength = 40;
+
+	/**
+	 * @param packageDepth
+	 *            the number of package levels below the root model
+	 * @return this builder
+	 */
+	public SyntheticModelBuilder packageDepth(int packageDepth) {
+		this.packageDepth = packageDepth;
+		return this;
+	}
+
+	/**
+	 * @param packagesPerLevel
+	 *            the number of packages in each package
+	 * @return this builder
+	 */
+	public SyntheticModelBuilder packagesPerLevel(int packagesPerLevel) {
+		this.packagesPerLevel = packagesPerLevel;
+		return this;
+	}
+
+	/**
+	 * @param enumerationClasses
+	 *            the number of <<Enumeration>> classes in the model
+	 * @return this builder
+	 */
+	public SyntheticModelBuilder enumerationClasses(int enumerationClasses) {
+		this.enumerationClasses = enumerationClasses;
+		return this;
+	}
+
+	/**
+	 * @param literalsPerEnumeration
+	 *            the number of attributes of each <<Enumeration>> class
+	 * @return this builder
+	 */
+	public SyntheticModelBuilder literalsPerEnumeration(
+			int literalsPerEnumeration) {
+		this.literalsPerEnumeration = literalsPerEnumeration;
+		return this;
+	}
+
+	/**
+	 * @param commentLength
+	 *            the length of the comment of each class and attribute, 0 for
+	 *            no comments
+	 * @return this builder
+	 */
+	public SyntheticModelBuilder commentLength(int commentLength) {
+		this.commentLength = commentLength;
+		return this;
+	}
+
+	/**
+	 * @return the number of elements the model will contain, not counting
+	 *         the stereotype applications
+	 */
+	public int getElementCount() {
+		int packages = 0;
+		for (int level = 1, width = packagesPerLevel; level <= packageDepth; level++, width *= packagesPerLevel) {
+			packages += width;
+		}
+		int comments = commentLength > 0 ? 1 : 0;
+		// The model, its String type and the profile application
+		return 3 + packages + enumerationClasses
+				* (1 + comments + literalsPerEnumeration * (1 + comments));
+	}
+
+	/**
+	 * Build the model into a new resource of the given resource set.
+	 *
+	 * @param resourceSet
+	 *            the resource set, the profile is loaded into it as well
+	 * @param uri
+	 *            the URI of the model resource
+	 * @return the model
+	 */
+	public Model build(ResourceSet resourceSet, URI uri) {
+		Profile profile = loadProfile(resourceSet);
+		Stereotype sourceDirectory = profile
+				.getOwnedStereotype("SourceDirectory");
+		Stereotype enumeration = profile.getOwnedStereotype("Enumeration");
+
+		// Stereotype applications are stored in the resource of the model
+		Resource resource = resourceSet.createResource(uri);
+		Model model = UMLFactory.eINSTANCE.createModel();
+		model.setName("Synthetic");
+		resource.getContents().add(model);
+		model.applyProfile(profile);
+		model.applyStereotype(sourceDirectory);
+		PrimitiveType stringType = model.createOwnedPrimitiveType("String");
+
+		List<org.eclipse.uml2.uml.Package> leaves = createPackages(model);
+		for (int i = 0; i < enumerationClasses; i++) {
+			org.eclipse.uml2.uml.Package owner = leaves.get(i % leaves.size());
+			Class clazz = owner.createOwnedClass("Enumeration" + i, false);
+			clazz.applyStereotype(enumeration);
+			comment(clazz);
+			for (int j = 0; j < literalsPerEnumeration; j++) {
+				Property literal = clazz.createOwnedAttribute("literal" + j,
+						stringType);
+				comment(literal);
+			}
+		}
+		return model;
+	}
+
+	/**
+	 * Build the model and save it, e.g. to test the loading of large models.
+	 *
+	 * @param file
+	 *            the model file
+	 * @return the model file
+	 * @throws IOException
+	 *             if the model cannot be saved
+	 */
+	public File save(File file) throws IOException {
+		ResourceSet resourceSet = new ModelLoader().createResourceSet();
+		Model model = build(resourceSet,
+				URI.createFileURI(file.getAbsolutePath()));
+		file.getParentFile().mkdirs();
+		model.eResource().save(Collections.emptyMap());
+		return file;
+	}
+
+	private List<org.eclipse.uml2.uml.Package> createPackages(Model model) {
+		List<org.eclipse.uml2.uml.Package> level = new ArrayList<org.eclipse.uml2.uml.Package>();
+		level.add(model);
+		for (int depth = 1; depth <= packageDepth; depth++) {
+			List<org.eclipse.uml2.uml.Package> next = new ArrayList<org.eclipse.uml2.uml.Package>();
+			for (org.eclipse.uml2.uml.Package owner : level) {
+				for (int i = 0; i < packagesPerLevel; i++) {
+					next.add(owner.createNestedPackage("package" + depth + "x"
+							+ next.size()));
+				}
+			}
+			level = next;
+		}
+		return level;
+	}
+
+	private void comment(NamedElement element) {
+		if (commentLength == 0) {
+			return;
+		}
+		StringBuilder body = new StringBuilder(commentLength);
+		String words = "Documentation of " + element.getName() + ". ";
+		while (body.length() < commentLength) {
+			body.append(words);
+		}
+		body.setLength(commentLength);
+		element.createOwnedComment().setBody(body.toString().trim());
+	}
+
+	private Profile loadProfile(ResourceSet resourceSet) {
+		URI uri = URI.createFileURI(new File(getClass().getResource(PROFILE)
+				.getPath()).getAbsolutePath());
+		Resource resource = resourceSet.getResource(uri, true);
+		for (Iterator<EObject> i = resource.getAllContents(); i.hasNext();) {
+			EObject eObject = i.next();
+			if (eObject instanceof Profile) {
+				return (Profile) eObject;
+			}
+		}
+		throw new IllegalStateException("No profile in " + uri);
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.andromda.cartridges.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The files the tests read and write: the test model on the classpath, copies
+ * of it and the Java files generated from it.
+ *
+ * @author Walter Mourão
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class TestFiles {
+
+	private TestFiles() {
+	}
+
+	/**
+	 * @return the path of the test model on the classpath
+	 */
+	static String getTestModel() {
+		return getResource("model/emf/test-uml.uml").getPath();
+	}
+
+	/**
+	 * @param path
+	 *            the path of a test resource, relative to the classpath root
+	 * @return the resource file
+	 */
+	static File getResource(String path) {
+		return new File(TestFiles.class.getProtectionDomain().getCodeSource()
+				.getLocation().getPath(), path);
+	}
+
+	/**
+	 * Copy the test model and its profiles, e.g. to change one of them.
+	 *
+	 * @param modelDirectory
+	 *            the directory the files are copied to
+	 * @return the directory
+	 * @throws IOException
+	 *             if a file cannot be copied
+	 */
+	static File copyModel(File modelDirectory) throws IOException {
+		modelDirectory.mkdirs();
+		for (File file : getResource("model/emf").listFiles()) {
+			Files.copy(file.toPath(),
+					new File(modelDirectory, file.getName()).toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+		}
+		return modelDirectory;
+	}
+
+	static String read(File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), "UTF-8");
+	}
+
+	/**
+	 * Read the generated files below a directory, without the manifest and
+	 * the report, which differ per run.
+	 *
+	 * @param directory
+	 *            the target directory
+	 * @return the contents by the path relative to the directory
+	 * @throws IOException
+	 *             if a file cannot be read
+	 */
+	static Map<String, String> readFiles(File directory) throws IOException {
+		Map<String, String> files = new TreeMap<String, String>();
+		readFiles(directory, "", files);
+		return files;
+	}
+
+	private static void readFiles(File directory, String prefix,
+			Map<String, String> files) throws IOException {
+		File[] children = directory.listFiles();
+		if (children == null) {
+			return;
+		}
+		for (File child : children) {
+			String name = prefix + "/" + child.getName();
+			if (child.isDirectory()) {
+				readFiles(child, name, files);
+			} else if (!child.getName().startsWith(".")) {
+				files.put(name, read(child));
+			}
+		}
+	}
+}